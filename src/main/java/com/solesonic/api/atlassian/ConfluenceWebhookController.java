@@ -0,0 +1,59 @@
+package com.solesonic.api.atlassian;
+
+import com.solesonic.model.atlassian.confluence.ConfluenceWebhookEvent;
+import com.solesonic.service.atlassian.ConfluenceWebhookService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import static com.solesonic.security.SecurityConfig.CONFLUENCE_WEBHOOK;
+
+/**
+ * Receives Confluence page created, updated, removed and trashed webhooks. Unauthenticated, every request must carry
+ * a valid {@code X-Hub-Signature} and a recent timestamp. Everything acted on, including the event type, is read from
+ * the signed body.
+ */
+@RestController
+@RequestMapping(CONFLUENCE_WEBHOOK)
+public class ConfluenceWebhookController {
+    private static final Logger log = LoggerFactory.getLogger(ConfluenceWebhookController.class);
+    private static final String SIGNATURE_HEADER = "X-Hub-Signature";
+
+    private final ConfluenceWebhookService confluenceWebhookService;
+    private final JsonMapper jsonMapper;
+
+    public ConfluenceWebhookController(ConfluenceWebhookService confluenceWebhookService, JsonMapper jsonMapper) {
+        this.confluenceWebhookService = confluenceWebhookService;
+        this.jsonMapper = jsonMapper;
+    }
+
+    @PostMapping
+    public ResponseEntity<Void> receive(@RequestHeader(value = SIGNATURE_HEADER, required = false) String signature,
+                                        @RequestBody byte[] body) {
+        //Verify against the raw bytes, re-serializing the payload would change the signature
+        if (!confluenceWebhookService.isValidSignature(body, signature)) {
+            log.warn("Rejecting Confluence webhook with an invalid signature");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        ConfluenceWebhookEvent confluenceWebhookEvent = jsonMapper.readValue(body, ConfluenceWebhookEvent.class);
+
+        if (!confluenceWebhookService.isWithinReplayWindow(confluenceWebhookEvent)) {
+            log.warn("Rejecting Confluence webhook with a missing or stale timestamp");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        //Redelivery of a payload already accepted, acknowledge it without acting twice
+        if (!confluenceWebhookService.markDelivered(signature)) {
+            log.debug("Ignoring replayed Confluence webhook");
+            return ResponseEntity.accepted().build();
+        }
+
+        confluenceWebhookService.accept(confluenceWebhookEvent);
+
+        return ResponseEntity.accepted().build();
+    }
+}
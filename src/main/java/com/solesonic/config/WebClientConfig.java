@@ -1,5 +1,6 @@
 package com.solesonic.config;
 
+import com.solesonic.config.http.HttpConnectorFactory;
 import com.solesonic.mcp.client.IdentityToolCallback;
 import com.solesonic.mcp.client.TokenExchangeService;
 import com.solesonic.model.security.McpFilterService;
@@ -24,8 +25,11 @@ public class WebClientConfig {
     private static final Logger log = LoggerFactory.getLogger(WebClientConfig.class);
 
     @Bean
-    public WebClient.Builder webClientBuilder(TokenExchangeService tokenExchangeService, McpFilterService mcpFilterService) {
+    public WebClient.Builder webClientBuilder(TokenExchangeService tokenExchangeService,
+                                              McpFilterService mcpFilterService,
+                                              HttpConnectorFactory httpConnectorFactory) {
         return WebClient.builder()
+                .clientConnector(httpConnectorFactory.connector(HttpConnectorFactory.MCP))
                 .filter((request, next) -> Mono.deferContextual(_ -> {
 
                     log.debug("Filtering mcp request: {}", request.url().getPath());
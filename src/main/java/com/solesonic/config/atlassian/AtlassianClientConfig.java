@@ -1,5 +1,6 @@
 package com.solesonic.config.atlassian;
 
+import com.solesonic.config.http.HttpConnectorFactory;
 import com.solesonic.exception.atlassian.JiraException;
 import com.solesonic.security.atlassian.AtlassianInternalAuthorizationFilter;
 import com.solesonic.security.atlassian.AtlassianRequestAuthorizationFilter;
@@ -18,6 +19,8 @@ import tools.jackson.databind.json.JsonMapper;
 import java.util.List;
 
 import static com.solesonic.config.atlassian.AtlassianConstants.*;
+import static com.solesonic.config.http.HttpConnectorFactory.ATLASSIAN_API;
+import static com.solesonic.config.http.HttpConnectorFactory.ATLASSIAN_AUTH;
 
 @SuppressWarnings("DuplicatedCode")
 @Configuration
@@ -28,19 +31,21 @@ public class AtlassianClientConfig {
     @Value("${atlassian.oauth.token-uri}")
     private String jiraApiAuthUri;
 
-    private final AtlassianRequestAuthorizationFilter atlassianRequestAuthorizationFilter;
-    private final AtlassianInternalAuthorizationFilter atlassianInternalAuthorizationFilter;
+    private final HttpConnectorFactory httpConnectorFactory;
 
-    public AtlassianClientConfig(AtlassianRequestAuthorizationFilter atlassianRequestAuthorizationFilter,
-                                 AtlassianInternalAuthorizationFilter atlassianInternalAuthorizationFilter) {
-        this.atlassianRequestAuthorizationFilter = atlassianRequestAuthorizationFilter;
-        this.atlassianInternalAuthorizationFilter = atlassianInternalAuthorizationFilter;
+    public AtlassianClientConfig(HttpConnectorFactory httpConnectorFactory) {
+        this.httpConnectorFactory = httpConnectorFactory;
     }
 
+    // The authorization filters are bean method parameters rather than constructor dependencies so the auth
+    // client can be built without them; the token refresh service behind the filters depends on it.
     @Bean
     @Qualifier(ATLASSIAN_API_WEB_CLIENT)
-    public WebClient jiraRequestApiWebClient(JsonMapper jsonMapper) {
+    public WebClient jiraRequestApiWebClient(JsonMapper jsonMapper,
+                                             AtlassianRequestAuthorizationFilter atlassianRequestAuthorizationFilter,
+                                             AtlassianRateLimitFilter atlassianRateLimitFilter) {
         return WebClient.builder()
+                .clientConnector(httpConnectorFactory.connector(ATLASSIAN_API))
                 .baseUrl(jiraApiUri)
                 .defaultHeaders(httpHeaders -> {
                     httpHeaders.setContentType(MediaType.APPLICATION_JSON);
@@ -53,6 +58,8 @@ public class AtlassianClientConfig {
                 .filter(atlassianRequestAuthorizationFilter)
                 .filter((request, next) -> next.exchange(request)
                         .flatMap(this::handleResponse))
+                // Innermost, so throttled responses are retried before they become JiraExceptions
+                .filter(atlassianRateLimitFilter)
                 .build();
     }
 
@@ -60,6 +67,7 @@ public class AtlassianClientConfig {
     @Qualifier(ATLASSIAN_AUTH_WEB_CLIENT)
     public WebClient jiraAuthWebClient(JsonMapper jsonMapper) {
         return WebClient.builder()
+                .clientConnector(httpConnectorFactory.connector(ATLASSIAN_AUTH))
                 .baseUrl(jiraApiAuthUri)
                 .defaultHeaders(httpHeaders -> {
                     httpHeaders.setContentType(MediaType.APPLICATION_JSON);
@@ -76,8 +84,11 @@ public class AtlassianClientConfig {
 
     @Bean
     @Qualifier(ATLASSIAN_API_INTERNAL_CLIENT)
-    public WebClient jiraInternalApiWebClient(JsonMapper jsonMapper) {
+    public WebClient jiraInternalApiWebClient(JsonMapper jsonMapper,
+                                              AtlassianInternalAuthorizationFilter atlassianInternalAuthorizationFilter,
+                                              AtlassianRateLimitFilter atlassianRateLimitFilter) {
         return WebClient.builder()
+                .clientConnector(httpConnectorFactory.connector(ATLASSIAN_API))
                 .baseUrl(jiraApiUri)
                 .defaultHeaders(httpHeaders -> {
                     httpHeaders.setContentType(MediaType.APPLICATION_JSON);
@@ -90,6 +101,8 @@ public class AtlassianClientConfig {
                 .filter(atlassianInternalAuthorizationFilter)
                 .filter((request, next) -> next.exchange(request)
                         .flatMap(this::handleResponse))
+                // Innermost, so throttled responses are retried before they become JiraExceptions
+                .filter(atlassianRateLimitFilter)
                 .build();
     }
 
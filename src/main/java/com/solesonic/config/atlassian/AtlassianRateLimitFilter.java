@@ -0,0 +1,223 @@
+package com.solesonic.config.atlassian;
+
+import com.solesonic.exception.atlassian.JiraException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps Atlassian API traffic under the site's rate limit instead of failing bursts outright.
+ * <p>
+ * Each cloud site gets an AIMD concurrency limit: every successful response grows it by roughly one request per
+ * round trip, a 429/503 halves it and pauses the site for the {@code Retry-After} period. Requests over the limit
+ * wait in a bounded queue, throttled responses are retried with jittered exponential backoff. A 503 may come back
+ * after the write was applied, so it is only retried for idempotent methods, a 429 always is. Must be registered
+ * after the filter that turns error responses into {@link JiraException}s, so it sees the raw response.
+ */
+@Component
+public class AtlassianRateLimitFilter implements ExchangeFilterFunction {
+    private static final Logger log = LoggerFactory.getLogger(AtlassianRateLimitFilter.class);
+
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final String NEAR_LIMIT = "X-RateLimit-NearLimit";
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.PUT,
+            HttpMethod.DELETE, HttpMethod.OPTIONS);
+
+    private final AtlassianRateLimitProperties rateLimitProperties;
+    private final Map<String, SiteLimiter> siteLimiters = new ConcurrentHashMap<>();
+
+    public AtlassianRateLimitFilter(AtlassianRateLimitProperties rateLimitProperties) {
+        this.rateLimitProperties = rateLimitProperties;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        SiteLimiter siteLimiter = siteLimiters.computeIfAbsent(siteKey(request), SiteLimiter::new);
+        return exchange(request, next, siteLimiter, 0);
+    }
+
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, SiteLimiter siteLimiter, int attempt) {
+        return siteLimiter.acquire()
+                .then(Mono.defer(() -> next.exchange(request))
+                        .doFinally(_ -> siteLimiter.release()))
+                .flatMap(response -> {
+                    siteLimiter.onResponse(response);
+
+                    if (isRetriable(request.method(), response.statusCode()) && attempt < rateLimitProperties.getMaxRetries()) {
+                        Duration delay = backoff(attempt);
+
+                        log.debug("Atlassian site {} responded {}, retrying in {} ms (attempt {})",
+                                siteLimiter.site, response.statusCode().value(), delay.toMillis(), attempt + 1);
+
+                        return response.releaseBody()
+                                .then(Mono.delay(delay))
+                                .then(Mono.defer(() -> exchange(request, next, siteLimiter, attempt + 1)));
+                    }
+
+                    return Mono.just(response);
+                });
+    }
+
+    private Duration backoff(int attempt) {
+        long exponential = rateLimitProperties.getBaseDelayMs() << Math.min(attempt, 16);
+        long capped = Math.min(exponential, rateLimitProperties.getMaxDelayMs());
+        long jittered = capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+
+        return Duration.ofMillis(jittered);
+    }
+
+    private static boolean isThrottled(HttpStatusCode statusCode) {
+        return statusCode.value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                || statusCode.value() == HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+
+    private static boolean isRetriable(HttpMethod method, HttpStatusCode statusCode) {
+        if (statusCode.value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return true;
+        }
+
+        return statusCode.value() == HttpStatus.SERVICE_UNAVAILABLE.value() && IDEMPOTENT_METHODS.contains(method);
+    }
+
+    /**
+     * Atlassian rate limits apply per site, which is the cloud id in {@code /ex/{product}/{cloudId}/...}.
+     */
+    static String siteKey(ClientRequest request) {
+        String[] segments = request.url().getPath().split("/");
+
+        if (segments.length > 3 && "ex".equals(segments[1])) {
+            return segments[3];
+        }
+
+        return request.url().getHost();
+    }
+
+    private static Duration retryAfter(ClientResponse response) {
+        String retryAfter = response.headers().asHttpHeaders().getFirst(RETRY_AFTER);
+
+        if (retryAfter == null) {
+            return Duration.ZERO;
+        }
+
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException _) {
+            return Duration.ZERO;
+        }
+    }
+
+    private class SiteLimiter {
+        private final String site;
+        private final Deque<MonoSink<Void>> waiters = new ArrayDeque<>();
+
+        private double limit = rateLimitProperties.getInitialLimit();
+        private int inFlight;
+        private long blockedUntil;
+        private boolean drainScheduled;
+
+        private SiteLimiter(String site) {
+            this.site = site;
+        }
+
+        private Mono<Void> acquire() {
+            return Mono.create(sink -> {
+                synchronized (this) {
+                    if (waiters.size() >= rateLimitProperties.getMaxQueued()) {
+                        sink.error(new JiraException("Too many queued requests for Atlassian site " + site));
+                        return;
+                    }
+
+                    waiters.add(sink);
+                }
+
+                sink.onCancel(() -> {
+                    boolean granted;
+
+                    synchronized (this) {
+                        granted = !waiters.remove(sink);
+                    }
+
+                    //Cancelled after being handed a permit, give it back
+                    if (granted) {
+                        release();
+                    }
+                });
+
+                drain();
+            });
+        }
+
+        private void release() {
+            synchronized (this) {
+                inFlight--;
+            }
+
+            drain();
+        }
+
+        private void onResponse(ClientResponse response) {
+            synchronized (this) {
+                if (isThrottled(response.statusCode())) {
+                    limit = Math.max(rateLimitProperties.getMinLimit(), limit / 2);
+
+                    Duration retryAfter = retryAfter(response);
+                    blockedUntil = Math.max(blockedUntil, System.currentTimeMillis() + retryAfter.toMillis());
+
+                    log.info("Atlassian site {} is throttling, concurrency limit lowered to {}", site, (int) limit);
+                } else if (!Boolean.parseBoolean(response.headers().asHttpHeaders().getFirst(NEAR_LIMIT))) {
+                    limit = Math.min(rateLimitProperties.getMaxLimit(), limit + 1 / limit);
+                }
+            }
+        }
+
+        private void drain() {
+            List<MonoSink<Void>> granted = new ArrayList<>();
+
+            synchronized (this) {
+                long blockedFor = blockedUntil - System.currentTimeMillis();
+
+                if (blockedFor > 0) {
+                    if (!drainScheduled && !waiters.isEmpty()) {
+                        drainScheduled = true;
+
+                        Mono.delay(Duration.ofMillis(blockedFor)).subscribe(_ -> {
+                            synchronized (this) {
+                                drainScheduled = false;
+                            }
+
+                            drain();
+                        });
+                    }
+
+                    return;
+                }
+
+                while (inFlight < (int) limit && !waiters.isEmpty()) {
+                    inFlight++;
+                    granted.add(waiters.poll());
+                }
+            }
+
+            granted.forEach(MonoSink::success);
+        }
+    }
+}
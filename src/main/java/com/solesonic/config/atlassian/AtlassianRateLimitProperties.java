@@ -0,0 +1,81 @@
+package com.solesonic.config.atlassian;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "atlassian.rate-limit")
+public class AtlassianRateLimitProperties {
+
+    /**
+     * Concurrent requests allowed per site before any feedback from Atlassian.
+     */
+    private int initialLimit = 10;
+    private int minLimit = 1;
+    private int maxLimit = 50;
+
+    /**
+     * Requests waiting for a permit per site before new requests are rejected.
+     */
+    private int maxQueued = 1000;
+
+    private int maxRetries = 4;
+    private long baseDelayMs = 500;
+    private long maxDelayMs = 30000;
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getBaseDelayMs() {
+        return baseDelayMs;
+    }
+
+    public void setBaseDelayMs(long baseDelayMs) {
+        this.baseDelayMs = baseDelayMs;
+    }
+
+    public long getMaxDelayMs() {
+        return maxDelayMs;
+    }
+
+    public void setMaxDelayMs(long maxDelayMs) {
+        this.maxDelayMs = maxDelayMs;
+    }
+}
@@ -12,6 +12,7 @@ public class TokenBrokerProperties {
 
     private Cache cache = new Cache();
     private Retry retry = new Retry();
+    private Lock lock = new Lock();
     private String requiredScope = TOKEN_MINT_JIRA;
     private String requiredAudience = TOKEN_BROKER;
 
@@ -66,6 +67,36 @@ public class TokenBrokerProperties {
         }
     }
 
+    public static class Lock {
+        private int ttlSeconds = 30;
+        private int waitSeconds = 20;
+        private int pollIntervalMs = 100;
+
+        public int getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(int ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        public int getWaitSeconds() {
+            return waitSeconds;
+        }
+
+        public void setWaitSeconds(int waitSeconds) {
+            this.waitSeconds = waitSeconds;
+        }
+
+        public int getPollIntervalMs() {
+            return pollIntervalMs;
+        }
+
+        public void setPollIntervalMs(int pollIntervalMs) {
+            this.pollIntervalMs = pollIntervalMs;
+        }
+    }
+
     public Cache getCache() {
         return cache;
     }
@@ -82,6 +113,14 @@ public class TokenBrokerProperties {
         this.retry = retry;
     }
 
+    public Lock getLock() {
+        return lock;
+    }
+
+    public void setLock(Lock lock) {
+        this.lock = lock;
+    }
+
     public String getRequiredScope() {
         return requiredScope;
     }
@@ -0,0 +1,40 @@
+package com.solesonic.config.etl;
+
+import com.solesonic.model.document.DocumentSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+@Component
+@ConfigurationProperties(prefix = "training.enrichment")
+public class EtlEnrichmentProperties {
+
+    /**
+     * Ollama model used for keyword and summary enrichment, blank uses the chat model. A smaller model keeps
+     * ingestion off the GPU time interactive chat needs.
+     */
+    private String model;
+
+    /**
+     * Sources whose chunks get keywords only, for bulk imports where summaries are not worth the model time.
+     */
+    private Set<DocumentSource> summaryDisabledSources = EnumSet.noneOf(DocumentSource.class);
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public Set<DocumentSource> getSummaryDisabledSources() {
+        return summaryDisabledSources;
+    }
+
+    public void setSummaryDisabledSources(Set<DocumentSource> summaryDisabledSources) {
+        this.summaryDisabledSources = summaryDisabledSources;
+    }
+}
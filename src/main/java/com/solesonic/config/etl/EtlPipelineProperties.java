@@ -0,0 +1,89 @@
+package com.solesonic.config.etl;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sizing of the ETL stages. Each parallelism is both the thread cap of the stage, shared by every document
+ * on the node, and the number of in-flight items a single document may have in that stage.
+ */
+@Component
+@ConfigurationProperties(prefix = "training.pipeline")
+public class EtlPipelineProperties {
+
+    private int readParallelism = 2;
+    private int enrichParallelism = 4;
+    private int embedParallelism = 2;
+    private int writeParallelism = 2;
+
+    /**
+     * Chunks sent to the embedding model per request.
+     */
+    private int embedBatchSize = 16;
+
+    /**
+     * Rows written to the vector store per batched insert.
+     */
+    private int writeBatchSize = 100;
+
+    /**
+     * Items buffered between two stages before the upstream stage is paused.
+     */
+    private int queueCapacity = 64;
+
+    public int getReadParallelism() {
+        return readParallelism;
+    }
+
+    public void setReadParallelism(int readParallelism) {
+        this.readParallelism = readParallelism;
+    }
+
+    public int getEnrichParallelism() {
+        return enrichParallelism;
+    }
+
+    public void setEnrichParallelism(int enrichParallelism) {
+        this.enrichParallelism = enrichParallelism;
+    }
+
+    public int getEmbedParallelism() {
+        return embedParallelism;
+    }
+
+    public void setEmbedParallelism(int embedParallelism) {
+        this.embedParallelism = embedParallelism;
+    }
+
+    public int getEmbedBatchSize() {
+        return embedBatchSize;
+    }
+
+    public void setEmbedBatchSize(int embedBatchSize) {
+        this.embedBatchSize = embedBatchSize;
+    }
+
+    public int getWriteParallelism() {
+        return writeParallelism;
+    }
+
+    public void setWriteParallelism(int writeParallelism) {
+        this.writeParallelism = writeParallelism;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    public void setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
@@ -0,0 +1,87 @@
+package com.solesonic.config.etl;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "training.throttle")
+public class EtlThrottleProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Open chat streams at which ETL drops to {@link #slowedWorkers} workers.
+     */
+    private int slowActiveStreams = 2;
+
+    /**
+     * Open chat streams at which ETL stops calling the models until load drops.
+     */
+    private int pauseActiveStreams = 5;
+
+    private long slowTimeToFirstTokenMs = 2000;
+    private long pauseTimeToFirstTokenMs = 5000;
+
+    /**
+     * How long a time to first token sample counts as current load.
+     */
+    private long timeToFirstTokenWindowMs = 60000;
+
+    private int slowedWorkers = 1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSlowActiveStreams() {
+        return slowActiveStreams;
+    }
+
+    public void setSlowActiveStreams(int slowActiveStreams) {
+        this.slowActiveStreams = slowActiveStreams;
+    }
+
+    public int getPauseActiveStreams() {
+        return pauseActiveStreams;
+    }
+
+    public void setPauseActiveStreams(int pauseActiveStreams) {
+        this.pauseActiveStreams = pauseActiveStreams;
+    }
+
+    public long getSlowTimeToFirstTokenMs() {
+        return slowTimeToFirstTokenMs;
+    }
+
+    public void setSlowTimeToFirstTokenMs(long slowTimeToFirstTokenMs) {
+        this.slowTimeToFirstTokenMs = slowTimeToFirstTokenMs;
+    }
+
+    public long getPauseTimeToFirstTokenMs() {
+        return pauseTimeToFirstTokenMs;
+    }
+
+    public void setPauseTimeToFirstTokenMs(long pauseTimeToFirstTokenMs) {
+        this.pauseTimeToFirstTokenMs = pauseTimeToFirstTokenMs;
+    }
+
+    public long getTimeToFirstTokenWindowMs() {
+        return timeToFirstTokenWindowMs;
+    }
+
+    public void setTimeToFirstTokenWindowMs(long timeToFirstTokenWindowMs) {
+        this.timeToFirstTokenWindowMs = timeToFirstTokenWindowMs;
+    }
+
+    public int getSlowedWorkers() {
+        return slowedWorkers;
+    }
+
+    public void setSlowedWorkers(int slowedWorkers) {
+        this.slowedWorkers = slowedWorkers;
+    }
+}
@@ -0,0 +1,122 @@
+package com.solesonic.config.http;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Connection pool settings for outbound WebClients, keyed by upstream name. Upstreams without an entry use the
+ * defaults below.
+ */
+@Component
+@ConfigurationProperties(prefix = "solesonic.http.client")
+public class HttpClientProperties {
+
+    private Map<String, Pool> pools = new HashMap<>();
+
+    public Pool pool(String upstream) {
+        return pools.getOrDefault(upstream, new Pool());
+    }
+
+    public Map<String, Pool> getPools() {
+        return pools;
+    }
+
+    public void setPools(Map<String, Pool> pools) {
+        this.pools = pools;
+    }
+
+    public static class Pool {
+        private int maxConnections = 50;
+        private int pendingAcquireMaxCount = 500;
+        private long pendingAcquireTimeoutMs = 5000;
+        private long maxIdleTimeSeconds = 30;
+        private long maxLifeTimeSeconds = 300;
+        private long evictInBackgroundSeconds = 30;
+        private long connectTimeoutMs = 5000;
+
+        /**
+         * Maximum time between reads of a response, 0 disables it for long-lived streams.
+         */
+        private long responseTimeoutSeconds = 30;
+
+        /**
+         * Negotiates HTTP/2 over TLS, falling back to HTTP/1.1. Only applies to https upstreams.
+         */
+        private boolean http2 = false;
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public void setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        public int getPendingAcquireMaxCount() {
+            return pendingAcquireMaxCount;
+        }
+
+        public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+        }
+
+        public long getPendingAcquireTimeoutMs() {
+            return pendingAcquireTimeoutMs;
+        }
+
+        public void setPendingAcquireTimeoutMs(long pendingAcquireTimeoutMs) {
+            this.pendingAcquireTimeoutMs = pendingAcquireTimeoutMs;
+        }
+
+        public long getMaxIdleTimeSeconds() {
+            return maxIdleTimeSeconds;
+        }
+
+        public void setMaxIdleTimeSeconds(long maxIdleTimeSeconds) {
+            this.maxIdleTimeSeconds = maxIdleTimeSeconds;
+        }
+
+        public long getMaxLifeTimeSeconds() {
+            return maxLifeTimeSeconds;
+        }
+
+        public void setMaxLifeTimeSeconds(long maxLifeTimeSeconds) {
+            this.maxLifeTimeSeconds = maxLifeTimeSeconds;
+        }
+
+        public long getEvictInBackgroundSeconds() {
+            return evictInBackgroundSeconds;
+        }
+
+        public void setEvictInBackgroundSeconds(long evictInBackgroundSeconds) {
+            this.evictInBackgroundSeconds = evictInBackgroundSeconds;
+        }
+
+        public long getConnectTimeoutMs() {
+            return connectTimeoutMs;
+        }
+
+        public void setConnectTimeoutMs(long connectTimeoutMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+        }
+
+        public long getResponseTimeoutSeconds() {
+            return responseTimeoutSeconds;
+        }
+
+        public void setResponseTimeoutSeconds(long responseTimeoutSeconds) {
+            this.responseTimeoutSeconds = responseTimeoutSeconds;
+        }
+
+        public boolean isHttp2() {
+            return http2;
+        }
+
+        public void setHttp2(boolean http2) {
+            this.http2 = http2;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.solesonic.config.http;
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out connectors backed by one named, pooled {@link ConnectionProvider} per upstream, so every WebClient
+ * talking to the same upstream reuses warm (already TLS-handshaken) connections.
+ * <p>
+ * Pools and clients register reactor-netty metrics under the upstream name
+ * ({@code reactor.netty.connection.provider.*}, {@code reactor.netty.http.client.*}).
+ */
+@Component
+public class HttpConnectorFactory {
+    private static final Logger log = LoggerFactory.getLogger(HttpConnectorFactory.class);
+
+    public static final String ATLASSIAN_API = "atlassian-api";
+    public static final String ATLASSIAN_AUTH = "atlassian-auth";
+    public static final String MCP = "mcp";
+    public static final String MCP_TOKEN_EXCHANGE = "mcp-token-exchange";
+
+    private final HttpClientProperties httpClientProperties;
+    private final Map<String, ConnectionProvider> connectionProviders = new ConcurrentHashMap<>();
+
+    public HttpConnectorFactory(HttpClientProperties httpClientProperties) {
+        this.httpClientProperties = httpClientProperties;
+    }
+
+    public ClientHttpConnector connector(String upstream) {
+        HttpClientProperties.Pool pool = httpClientProperties.pool(upstream);
+        ConnectionProvider connectionProvider = connectionProviders.computeIfAbsent(upstream, _ -> connectionProvider(upstream, pool));
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeoutMs())
+                .metrics(true, _ -> upstream);
+
+        if (pool.getResponseTimeoutSeconds() > 0) {
+            httpClient = httpClient.responseTimeout(Duration.ofSeconds(pool.getResponseTimeoutSeconds()));
+        }
+
+        if (pool.isHttp2()) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    private ConnectionProvider connectionProvider(String upstream, HttpClientProperties.Pool pool) {
+        log.info("Creating connection pool {} with {} max connections", upstream, pool.getMaxConnections());
+
+        return ConnectionProvider.builder(upstream)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(pool.getPendingAcquireTimeoutMs()))
+                .maxIdleTime(Duration.ofSeconds(pool.getMaxIdleTimeSeconds()))
+                .maxLifeTime(Duration.ofSeconds(pool.getMaxLifeTimeSeconds()))
+                .evictInBackground(Duration.ofSeconds(pool.getEvictInBackgroundSeconds()))
+                .metrics(true)
+                .build();
+    }
+
+    @PreDestroy
+    public void dispose() {
+        connectionProviders.values().forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,49 @@
+package com.solesonic.config.olllama;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "solesonic.llm.intent")
+public class IntentRouterProperties {
+
+    /**
+     * Routes each chat turn before generation, off always retrieves and keeps the requested prompt.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Ollama model asked when the heuristics cannot decide, blank leaves those turns on retrieval with the requested
+     * prompt. Meant for a tiny model, the answer is a prompt name and one word.
+     */
+    private String model;
+
+    /**
+     * Longest wait for the model before falling back to retrieval with the requested prompt.
+     */
+    private long timeoutMs = 1500;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+}
@@ -0,0 +1,61 @@
+package com.solesonic.config.rag;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "rag.hybrid")
+public class HybridSearchProperties {
+
+    /**
+     * Fuses a full text search with the vector search for chat retrieval, off uses the vector search alone.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Results taken from each of the two searches before fusion.
+     */
+    private int candidates = 20;
+
+    /**
+     * Reciprocal rank fusion constant, larger values flatten the advantage of the top ranks.
+     */
+    private int rrfK = 60;
+
+    /**
+     * Documents handed to the model after fusion.
+     */
+    private int topK = 5;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(int candidates) {
+        this.candidates = candidates;
+    }
+
+    public int getRrfK() {
+        return rrfK;
+    }
+
+    public void setRrfK(int rrfK) {
+        this.rrfK = rrfK;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    public void setTopK(int topK) {
+        this.topK = topK;
+    }
+}
@@ -0,0 +1,57 @@
+package com.solesonic.config.rag;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "rag.vector-storage")
+public class VectorStorageProperties {
+
+    public enum Mode {
+        /**
+         * Nearest neighbours straight from the HNSW index over the full precision embeddings.
+         */
+        FULL,
+
+        /**
+         * Candidates from the HNSW index over half precision embeddings, re-ranked by full precision distance.
+         */
+        HALF
+    }
+
+    private Mode mode = Mode.FULL;
+
+    /**
+     * Candidates fetched per requested result in {@link Mode#HALF}, before re-ranking.
+     */
+    private int rerankFactor = 4;
+
+    /**
+     * Rows given a half precision embedding per backfill transaction.
+     */
+    private int backfillBatchSize = 1000;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public int getRerankFactor() {
+        return rerankFactor;
+    }
+
+    public void setRerankFactor(int rerankFactor) {
+        this.rerankFactor = rerankFactor;
+    }
+
+    public int getBackfillBatchSize() {
+        return backfillBatchSize;
+    }
+
+    public void setBackfillBatchSize(int backfillBatchSize) {
+        this.backfillBatchSize = backfillBatchSize;
+    }
+}
@@ -0,0 +1,14 @@
+package com.solesonic.exception.training;
+
+import java.util.UUID;
+
+/**
+ * The worker no longer holds the lease of the job it is processing, another worker may already be retrying it or the
+ * document was removed or replaced and its job cancelled.
+ */
+public class TrainingLeaseLostException extends RuntimeException {
+
+    public TrainingLeaseLostException(UUID trainingJobId, String leaseOwner) {
+        super("Training job " + trainingJobId + " is no longer leased by " + leaseOwner);
+    }
+}
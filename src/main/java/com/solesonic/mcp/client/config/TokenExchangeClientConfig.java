@@ -1,5 +1,6 @@
 package com.solesonic.mcp.client.config;
 
+import com.solesonic.config.http.HttpConnectorFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -17,8 +18,9 @@ public class TokenExchangeClientConfig {
 
     @Bean
     @Qualifier(MCP_TOKEN_EXCHANGE_CLIENT)
-    public WebClient tokenExchangeWebClient() {
+    public WebClient tokenExchangeWebClient(HttpConnectorFactory httpConnectorFactory) {
         return WebClient.builder()
+                .clientConnector(httpConnectorFactory.connector(HttpConnectorFactory.MCP_TOKEN_EXCHANGE))
                 .baseUrl(tokenExchangeEndpoint)
                 .defaultHeaders(headers -> headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED))
                 .build();
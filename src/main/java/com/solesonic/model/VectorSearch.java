@@ -1,6 +1,20 @@
 package com.solesonic.model;
 
+import com.solesonic.model.document.DocumentSource;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A similarity search, optionally narrowed to one document source and/or a set of training documents.
+ */
 public record VectorSearch(String query,
                            double similarityThreshold,
-                           int topK){
+                           int topK,
+                           DocumentSource documentSource,
+                           List<UUID> trainingDocumentIds){
+
+    public VectorSearch(String query, double similarityThreshold, int topK) {
+        this(query, similarityThreshold, topK, null, null);
+    }
 }
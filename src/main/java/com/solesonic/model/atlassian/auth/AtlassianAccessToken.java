@@ -2,6 +2,8 @@ package com.solesonic.model.atlassian.auth;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.UUID;
 
@@ -70,11 +72,18 @@ public record AtlassianAccessToken(
     }
 
     public boolean isExpired() {
+        return expiresWithin(Duration.ZERO);
+    }
+
+    /**
+     * Whether the token expires within the given window, used to refresh tokens ahead of expiry.
+     */
+    public boolean expiresWithin(Duration window) {
         if (expiresIn == null || created == null) {
             return true;
         }
 
-        ZonedDateTime expirationTime = created.plusSeconds(expiresIn).minusSeconds(10);
+        ZonedDateTime expirationTime = created.plusSeconds(expiresIn).minusSeconds(10).minus(window);
         return ZonedDateTime.now().isAfter(expirationTime);
     }
 
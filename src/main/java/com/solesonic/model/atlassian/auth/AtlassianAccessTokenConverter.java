@@ -1,40 +1,40 @@
 package com.solesonic.model.atlassian.auth;
 
+import com.solesonic.security.crypto.AtlassianTokenCipher;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
-import org.springframework.security.crypto.encrypt.BytesEncryptor;
-import tools.jackson.databind.ObjectMapper;
+import org.hibernate.annotations.Immutable;
 
+/**
+ * Maps the encrypted token column without decrypting it. Marked immutable so Hibernate compares holders by
+ * reference for dirty checking instead of round-tripping them through encryption to take a snapshot.
+ */
 @Converter
-public class AtlassianAccessTokenConverter implements AttributeConverter<AtlassianAccessToken, byte[]> {
+@Immutable
+public class AtlassianAccessTokenConverter implements AttributeConverter<EncryptedAtlassianAccessToken, byte[]> {
 
-    private final BytesEncryptor encryptor;
-    private final ObjectMapper objectMapper;
+    private final AtlassianTokenCipher cipher;
 
-    public AtlassianAccessTokenConverter(BytesEncryptor encryptor,
-                                         ObjectMapper objectMapper) {
-        this.encryptor = encryptor;
-        this.objectMapper = objectMapper;
+    public AtlassianAccessTokenConverter(AtlassianTokenCipher cipher) {
+        this.cipher = cipher;
     }
 
 
     @Override
-    public byte[] convertToDatabaseColumn(AtlassianAccessToken atlassianAccessToken) {
+    public byte[] convertToDatabaseColumn(EncryptedAtlassianAccessToken atlassianAccessToken) {
         if(atlassianAccessToken == null) {
             return null;
         }
 
-        byte[] bytes = objectMapper.writeValueAsBytes(atlassianAccessToken);
-        return encryptor.encrypt(bytes);
+        return atlassianAccessToken.encrypt(cipher);
     }
 
     @Override
-    public AtlassianAccessToken convertToEntityAttribute(byte[] bytes) {
+    public EncryptedAtlassianAccessToken convertToEntityAttribute(byte[] bytes) {
         if(bytes == null) {
             return null;
         }
 
-        byte[] decrypted = encryptor.decrypt(bytes);
-        return objectMapper.readValue(decrypted, AtlassianAccessToken.class);
+        return EncryptedAtlassianAccessToken.encrypted(bytes, cipher);
     }
 }
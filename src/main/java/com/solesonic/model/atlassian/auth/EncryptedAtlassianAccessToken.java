@@ -0,0 +1,54 @@
+package com.solesonic.model.atlassian.auth;
+
+import com.solesonic.security.crypto.AtlassianTokenCipher;
+
+/**
+ * Holder for the encrypted {@code atlassian_access_token} column.
+ * <p>
+ * Loading a row only keeps the ciphertext; the token is decrypted the first time it is asked for, so preference
+ * reads that only need the model or similarity threshold never pay for decryption.
+ */
+public class EncryptedAtlassianAccessToken {
+    private final byte[] encrypted;
+    private final AtlassianTokenCipher cipher;
+    private volatile AtlassianAccessToken atlassianAccessToken;
+
+    private EncryptedAtlassianAccessToken(byte[] encrypted, AtlassianTokenCipher cipher, AtlassianAccessToken atlassianAccessToken) {
+        this.encrypted = encrypted;
+        this.cipher = cipher;
+        this.atlassianAccessToken = atlassianAccessToken;
+    }
+
+    /**
+     * Wraps ciphertext read from the database without decrypting it.
+     */
+    public static EncryptedAtlassianAccessToken encrypted(byte[] encrypted, AtlassianTokenCipher cipher) {
+        return new EncryptedAtlassianAccessToken(encrypted, cipher, null);
+    }
+
+    /**
+     * Wraps a plain token that will be encrypted when it is written.
+     */
+    public static EncryptedAtlassianAccessToken of(AtlassianAccessToken atlassianAccessToken) {
+        return new EncryptedAtlassianAccessToken(null, null, atlassianAccessToken);
+    }
+
+    public AtlassianAccessToken decrypt() {
+        AtlassianAccessToken decrypted = atlassianAccessToken;
+
+        if (decrypted == null) {
+            decrypted = cipher.decrypt(encrypted);
+            atlassianAccessToken = decrypted;
+        }
+
+        return decrypted;
+    }
+
+    public byte[] encrypt(AtlassianTokenCipher cipher) {
+        if (encrypted != null) {
+            return encrypted;
+        }
+
+        return cipher.encrypt(atlassianAccessToken);
+    }
+}
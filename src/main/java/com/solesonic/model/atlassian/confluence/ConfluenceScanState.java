@@ -0,0 +1,45 @@
+package com.solesonic.model.atlassian.confluence;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Progress of a Confluence scan, so the next run only lists pages modified since the last successful one.
+ */
+@Entity
+public class ConfluenceScanState {
+    public static final String PAGE_SCAN = "page-scan";
+
+    @Id
+    private String id;
+
+    private ZonedDateTime highWaterMark;
+
+    private ZonedDateTime updated;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public ZonedDateTime getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public void setHighWaterMark(ZonedDateTime highWaterMark) {
+        this.highWaterMark = highWaterMark;
+    }
+
+    public ZonedDateTime getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(ZonedDateTime updated) {
+        this.updated = updated;
+    }
+}
@@ -0,0 +1,54 @@
+package com.solesonic.model.atlassian.confluence;
+
+import java.util.Map;
+
+/**
+ * Confluence page webhook payload, only the fields needed to re-ingest the page are read.
+ */
+public class ConfluenceWebhookEvent {
+	public static final String PAGE_REMOVED = "page_removed";
+	public static final String PAGE_TRASHED = "page_trashed";
+
+	private String webhookEvent;
+	private Long timestamp;
+	private Map<String, Object> page;
+
+	public String getWebhookEvent(){
+		return webhookEvent;
+	}
+
+	public void setWebhookEvent(String webhookEvent){
+		this.webhookEvent = webhookEvent;
+	}
+
+	/**
+	 * When Confluence sent the event, in epoch milliseconds.
+	 */
+	public Long getTimestamp(){
+		return timestamp;
+	}
+
+	public void setTimestamp(Long timestamp){
+		this.timestamp = timestamp;
+	}
+
+	public Map<String, Object> getPage(){
+		return page;
+	}
+
+	public void setPage(Map<String, Object> page){
+		this.page = page;
+	}
+
+	public String pageId() {
+		if (page == null || page.get("id") == null) {
+			return null;
+		}
+
+		return page.get("id").toString();
+	}
+
+	public boolean isRemoval() {
+		return PAGE_REMOVED.equals(webhookEvent) || PAGE_TRASHED.equals(webhookEvent);
+	}
+}
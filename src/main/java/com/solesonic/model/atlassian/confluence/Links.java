@@ -6,6 +6,7 @@ public class Links{
 	private String webui;
 	private String edituiv2;
 	private String tinyui;
+	private String next;
 
 	public void setBase(String base){
 		this.base = base;
@@ -48,4 +49,15 @@ public class Links{
 	public String getTinyui(){
 		return tinyui;
 	}
+
+	/**
+	 * Relative URL of the next page of results, absent on the last page.
+	 */
+	public void setNext(String next){
+		this.next = next;
+	}
+
+	public String getNext(){
+		return next;
+	}
 }
@@ -0,0 +1,16 @@
+package com.solesonic.model.training;
+
+/**
+ * What a compaction run removed. Reclaimed bytes are the size of the unlinked large objects, Postgres returns the
+ * pages to the filesystem once {@code pg_largeobject} is vacuumed.
+ */
+public record CompactionReport(int purgedDocuments, int unlinkedObjects, long reclaimedBytes, int prunedChunks) {
+    public static final CompactionReport EMPTY = new CompactionReport(0, 0, 0, 0);
+
+    public CompactionReport plus(CompactionReport other) {
+        return new CompactionReport(purgedDocuments + other.purgedDocuments,
+                unlinkedObjects + other.unlinkedObjects,
+                reclaimedBytes + other.reclaimedBytes,
+                prunedChunks + other.prunedChunks);
+    }
+}
@@ -0,0 +1,14 @@
+package com.solesonic.model.training;
+
+import java.util.UUID;
+
+/**
+ * The newest live training document ingested for a Confluence page, without its content.
+ */
+public interface ConfluencePageVersion {
+    String getConfluencePageId();
+
+    UUID getTrainingDocumentId();
+
+    Integer getVersion();
+}
@@ -9,5 +9,7 @@ public enum DocumentStatus {
     QUEUED,
     COMPLETED,
     FAILED,
-    REPLACED
+    REPLACED,
+    REMOVED,
+    DUPLICATE
 }
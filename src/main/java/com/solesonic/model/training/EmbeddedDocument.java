@@ -0,0 +1,9 @@
+package com.solesonic.model.training;
+
+import org.springframework.ai.document.Document;
+
+/**
+ * A chunk paired with its embedding, ready to be written to the vector store.
+ */
+public record EmbeddedDocument(Document document, float[] embedding) {
+}
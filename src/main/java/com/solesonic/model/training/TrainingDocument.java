@@ -1,5 +1,6 @@
 package com.solesonic.model.training;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.solesonic.model.document.DocumentSource;
 import jakarta.persistence.*;
@@ -15,6 +16,7 @@ public class TrainingDocument {
     public static final String REPLACED_BY_ID = "REPLACED_BY_ID";
     public static final String CONFLUENCE_PAGE_VERSION = "CONFLUENCE_PAGE_VERSION";
     public static final String CONFLUENCE_PAGE_ID = "CONFLUENCE_PAGE_ID";
+    public static final String DUPLICATE_OF = "DUPLICATE_OF";
 
     @Id
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
@@ -25,10 +27,23 @@ public class TrainingDocument {
 
     private String contentType;
 
-    @Lob
-    private byte[] fileData;
-
-    @Transient
+    /**
+     * Large object holding the content, see {@code TrainingDocumentContentStore}.
+     */
+    @JsonIgnore
+    @Column(name = "file_data")
+    private Long fileOid;
+
+    /**
+     * SHA-256 of the uploaded content, unique among user uploads.
+     */
+    private String contentHash;
+
+    /**
+     * Latest status, written in the same transaction as the {@link StatusHistory} audit row.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "current_status")
     private DocumentStatus documentStatus;
 
     private ZonedDateTime created;
@@ -51,6 +66,11 @@ public class TrainingDocument {
         this.contentType = contentType;
     }
 
+    public TrainingDocument(UUID id, String fileName, String contentType, DocumentStatus documentStatus) {
+        this(id, fileName, contentType);
+        this.documentStatus = documentStatus;
+    }
+
     public UUID getId() {
         return id;
     }
@@ -67,12 +87,20 @@ public class TrainingDocument {
         this.fileName = name;
     }
 
-    public byte[] getFileData() {
-        return fileData;
+    public Long getFileOid() {
+        return fileOid;
+    }
+
+    public void setFileOid(Long fileOid) {
+        this.fileOid = fileOid;
+    }
+
+    public String getContentHash() {
+        return contentHash;
     }
 
-    public void setFileData(byte[] fileData) {
-        this.fileData = fileData;
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
     }
 
     public String getContentType() {
@@ -0,0 +1,133 @@
+package com.solesonic.model.training;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+/**
+ * A unit of ETL work for one training document. Workers claim jobs with a lease that they keep alive by
+ * heartbeat, a job whose lease expires is handed to another worker.
+ */
+@Entity
+public class TrainingJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    private UUID trainingDocumentId;
+
+    @Enumerated(EnumType.STRING)
+    private TrainingJobStatus status;
+
+    private int attempts;
+
+    private String leaseOwner;
+
+    private ZonedDateTime leaseExpiresAt;
+
+    private ZonedDateTime availableAt;
+
+    private String lastError;
+
+    private ZonedDateTime created;
+
+    private ZonedDateTime updated;
+
+    public static TrainingJob queued(UUID trainingDocumentId) {
+        ZonedDateTime now = ZonedDateTime.now();
+
+        TrainingJob trainingJob = new TrainingJob();
+        trainingJob.setTrainingDocumentId(trainingDocumentId);
+        trainingJob.setStatus(TrainingJobStatus.QUEUED);
+        trainingJob.setAvailableAt(now);
+        trainingJob.setCreated(now);
+        trainingJob.setUpdated(now);
+        return trainingJob;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public UUID getTrainingDocumentId() {
+        return trainingDocumentId;
+    }
+
+    public void setTrainingDocumentId(UUID trainingDocumentId) {
+        this.trainingDocumentId = trainingDocumentId;
+    }
+
+    public TrainingJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TrainingJobStatus status) {
+        this.status = status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public ZonedDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(ZonedDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public ZonedDateTime getAvailableAt() {
+        return availableAt;
+    }
+
+    public void setAvailableAt(ZonedDateTime availableAt) {
+        this.availableAt = availableAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public ZonedDateTime getCreated() {
+        return created;
+    }
+
+    public void setCreated(ZonedDateTime created) {
+        this.created = created;
+    }
+
+    public ZonedDateTime getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(ZonedDateTime updated) {
+        this.updated = updated;
+    }
+}
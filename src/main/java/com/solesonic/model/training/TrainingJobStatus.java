@@ -0,0 +1,9 @@
+package com.solesonic.model.training;
+
+public enum TrainingJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED
+}
@@ -1,8 +1,10 @@
 package com.solesonic.model.user;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.solesonic.model.atlassian.auth.AtlassianAccessToken;
 import com.solesonic.model.atlassian.auth.AtlassianAccessTokenConverter;
+import com.solesonic.model.atlassian.auth.EncryptedAtlassianAccessToken;
 import jakarta.persistence.*;
 
 import java.time.ZonedDateTime;
@@ -27,7 +29,7 @@ public class UserPreferences {
 
     @Convert(converter = AtlassianAccessTokenConverter.class)
     @Column(name = "atlassian_access_token", columnDefinition = "bytea")
-    private AtlassianAccessToken atlassianAccessToken;
+    private EncryptedAtlassianAccessToken atlassianAccessToken;
 
     public UUID getUserId() {
         return userId;
@@ -79,11 +81,51 @@ public class UserPreferences {
         this.similarityThreshold = similarityThreshold;
     }
 
+    /**
+     * Decrypts the stored token on first access. Never serialized; clients only see {@code atlassianAuthentication}.
+     */
+    @JsonIgnore
     public AtlassianAccessToken getAtlassianAccessToken() {
-        return atlassianAccessToken;
+        if (atlassianAccessToken == null) {
+            return null;
+        }
+
+        return atlassianAccessToken.decrypt();
     }
 
+    @JsonIgnore
     public void setAtlassianAccessToken(AtlassianAccessToken atlassianAccessToken) {
-        this.atlassianAccessToken = atlassianAccessToken;
+        this.atlassianAccessToken = atlassianAccessToken == null ? null : EncryptedAtlassianAccessToken.of(atlassianAccessToken);
+    }
+
+    /**
+     * Whether a token is stored, without decrypting it.
+     */
+    @JsonIgnore
+    public boolean hasAtlassianAccessToken() {
+        return atlassianAccessToken != null;
+    }
+
+    /**
+     * Carries the stored token over from another instance as-is, so it is neither decrypted nor re-encrypted.
+     */
+    public void copyAtlassianAccessToken(UserPreferences other) {
+        this.atlassianAccessToken = other.atlassianAccessToken;
+    }
+
+    /**
+     * Detached copy for handing out cached preferences, so callers can modify what they get back without affecting
+     * other readers. The encrypted token holder is immutable and shared.
+     */
+    public UserPreferences copy() {
+        UserPreferences copy = new UserPreferences();
+        copy.userId = userId;
+        copy.created = created;
+        copy.updated = updated;
+        copy.model = model;
+        copy.similarityThreshold = similarityThreshold;
+        copy.atlassianAuthentication = atlassianAuthentication;
+        copy.atlassianAccessToken = atlassianAccessToken;
+        return copy;
     }
 }
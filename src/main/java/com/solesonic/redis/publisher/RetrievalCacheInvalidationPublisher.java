@@ -0,0 +1,29 @@
+package com.solesonic.redis.publisher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * Tells every node to drop its cached retrieval results after the vector store changed.
+ */
+@Service
+public class RetrievalCacheInvalidationPublisher {
+    private static final Logger log = LoggerFactory.getLogger(RetrievalCacheInvalidationPublisher.class);
+
+    public static final String RETRIEVAL_CACHE_INVALIDATION_CHANNEL = "retrieval-cache:invalidate";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public RetrievalCacheInvalidationPublisher(ReactiveStringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void publish() {
+        redisTemplate.convertAndSend(RETRIEVAL_CACHE_INVALIDATION_CHANNEL, "corpus-changed")
+                .subscribe(
+                        receivers -> log.debug("Published retrieval cache invalidation to {} nodes", receivers),
+                        error -> log.warn("Failed to publish retrieval cache invalidation: {}", error.getMessage()));
+    }
+}
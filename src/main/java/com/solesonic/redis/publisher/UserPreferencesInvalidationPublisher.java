@@ -0,0 +1,31 @@
+package com.solesonic.redis.publisher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Tells every node to drop its near-cached copy of a user's preferences after they change.
+ */
+@Service
+public class UserPreferencesInvalidationPublisher {
+    private static final Logger log = LoggerFactory.getLogger(UserPreferencesInvalidationPublisher.class);
+
+    public static final String USER_PREFERENCES_INVALIDATION_CHANNEL = "user-preferences:invalidate";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public UserPreferencesInvalidationPublisher(ReactiveStringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void publish(UUID userId) {
+        redisTemplate.convertAndSend(USER_PREFERENCES_INVALIDATION_CHANNEL, userId.toString())
+                .subscribe(
+                        receivers -> log.debug("Published preferences invalidation for user {} to {} nodes", userId, receivers),
+                        error -> log.warn("Failed to publish preferences invalidation for user {}: {}", userId, error.getMessage()));
+    }
+}
@@ -0,0 +1,54 @@
+package com.solesonic.redis.subscriber;
+
+import com.solesonic.service.rag.RetrievalCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+import static com.solesonic.redis.publisher.RetrievalCacheInvalidationPublisher.RETRIEVAL_CACHE_INVALIDATION_CHANNEL;
+
+/**
+ * Evicts cached retrieval results when any node changes the vector store.
+ */
+@Service
+public class RetrievalCacheInvalidationSubscriber {
+    private static final Logger log = LoggerFactory.getLogger(RetrievalCacheInvalidationSubscriber.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final RetrievalCache retrievalCache;
+
+    private Disposable subscription;
+
+    public RetrievalCacheInvalidationSubscriber(ReactiveStringRedisTemplate redisTemplate,
+                                                RetrievalCache retrievalCache) {
+        this.redisTemplate = redisTemplate;
+        this.retrievalCache = retrievalCache;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        subscription = redisTemplate.listenToChannel(RETRIEVAL_CACHE_INVALIDATION_CHANNEL)
+                .doOnSubscribe(_ -> log.info("Listening for retrieval cache invalidations on {}", RETRIEVAL_CACHE_INVALIDATION_CHANNEL))
+                .doOnError(error -> {
+                    //Anything published while disconnected is missed, so start clean once we are back
+                    log.warn("Lost retrieval cache invalidation subscription: {}", error.getMessage());
+                    retrievalCache.evictResults();
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(_ -> retrievalCache.evictResults());
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.solesonic.redis.subscriber;
+
+import com.solesonic.service.user.UserPreferencesService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static com.solesonic.redis.publisher.UserPreferencesInvalidationPublisher.USER_PREFERENCES_INVALIDATION_CHANNEL;
+
+/**
+ * Evicts near-cached preferences when any node publishes a change for that user.
+ */
+@Service
+public class UserPreferencesInvalidationSubscriber {
+    private static final Logger log = LoggerFactory.getLogger(UserPreferencesInvalidationSubscriber.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final UserPreferencesService userPreferencesService;
+
+    private Disposable subscription;
+
+    public UserPreferencesInvalidationSubscriber(ReactiveStringRedisTemplate redisTemplate,
+                                                 UserPreferencesService userPreferencesService) {
+        this.redisTemplate = redisTemplate;
+        this.userPreferencesService = userPreferencesService;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        subscription = redisTemplate.listenToChannel(USER_PREFERENCES_INVALIDATION_CHANNEL)
+                .doOnSubscribe(_ -> log.info("Listening for user preferences invalidations on {}", USER_PREFERENCES_INVALIDATION_CHANNEL))
+                .doOnError(error -> {
+                    //Anything published while disconnected is missed, so start clean once we are back
+                    log.warn("Lost user preferences invalidation subscription: {}", error.getMessage());
+                    userPreferencesService.evictAll();
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(message -> {
+                    UUID userId = UUID.fromString(message.getMessage());
+                    log.debug("Evicting cached preferences for user {}", userId);
+                    userPreferencesService.evict(userId);
+                });
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+}
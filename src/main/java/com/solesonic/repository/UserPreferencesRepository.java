@@ -19,4 +19,9 @@ public interface UserPreferencesRepository extends JpaRepository<UserPreferences
             where chat.id = :chatId
     """)
     Optional<UserPreferences> findByChatId(UUID chatId);
+
+    @Query("""
+            select chat.userId from Chat chat where chat.id = :chatId
+    """)
+    Optional<UUID> findUserIdByChatId(UUID chatId);
 }
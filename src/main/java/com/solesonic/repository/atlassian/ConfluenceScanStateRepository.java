@@ -0,0 +1,7 @@
+package com.solesonic.repository.atlassian;
+
+import com.solesonic.model.atlassian.confluence.ConfluenceScanState;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ConfluenceScanStateRepository extends JpaRepository<ConfluenceScanState, String> {
+}
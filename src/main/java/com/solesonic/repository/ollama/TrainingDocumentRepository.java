@@ -1,37 +1,80 @@
 package com.solesonic.repository.ollama;
 
+import com.solesonic.model.document.DocumentSource;
+import com.solesonic.model.training.ConfluencePageVersion;
+import com.solesonic.model.training.DocumentStatus;
 import com.solesonic.model.training.TrainingDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-import static com.solesonic.model.training.TrainingDocument.CONFLUENCE_PAGE_ID;
-
 public interface TrainingDocumentRepository extends JpaRepository<TrainingDocument, UUID> {
 
     @Query("""
-                select new TrainingDocument(td.id, td.fileName, td.contentType)
+                select new TrainingDocument(td.id, td.fileName, td.contentType, td.documentStatus)
                 from TrainingDocument td
                 order by td.created desc
             """)
     Optional<List<TrainingDocument>> findAllWithoutContent();
 
-    @Query("""
-        SELECT new TrainingDocument(td.id, td.fileName, td.contentType)
-        FROM TrainingDocument td
-        WHERE td.fileName = :fileName
-        """)
-    Optional<TrainingDocument> findByFileName(String fileName);
+    Optional<TrainingDocument> findFirstByContentHashAndDocumentSource(String contentHash, DocumentSource documentSource);
+
+    /**
+     * Newest live version per Confluence page for a batch of page ids, served by
+     * {@code idx_training_document_confluence_page_version}. Removed and replaced versions are skipped, so a page
+     * restored from the trash with its old version number is ingested again.
+     */
+    @Query(value = """
+        SELECT DISTINCT ON (td.metadata->>'CONFLUENCE_PAGE_ID')
+               td.metadata->>'CONFLUENCE_PAGE_ID' AS confluencePageId,
+               td.id AS trainingDocumentId,
+               (td.metadata->>'CONFLUENCE_PAGE_VERSION')::int AS version
+        FROM public.training_document td
+        WHERE td.metadata->>'CONFLUENCE_PAGE_ID' IN (:confluencePageIds)
+          AND coalesce(td.current_status, '') NOT IN ('REMOVED', 'REPLACED')
+        ORDER BY td.metadata->>'CONFLUENCE_PAGE_ID', (td.metadata->>'CONFLUENCE_PAGE_VERSION')::int DESC
+        """
+        , nativeQuery = true)
+    List<ConfluencePageVersion> findLatestConfluencePageVersions(@Param("confluencePageIds") Collection<String> confluencePageIds);
 
+    /**
+     * Every Confluence page that currently has a live version in rag.
+     */
     @Query(value = """
-        SELECT *
+        SELECT DISTINCT td.metadata->>'CONFLUENCE_PAGE_ID'
         FROM public.training_document td
-        WHERE td.metadata->>'CONFLUENCE_PAGE_ID' = :CONFLUENCE_PAGE_ID
+        WHERE td.document_source = 'CONFLUENCE'
+          AND td.metadata->>'CONFLUENCE_PAGE_ID' IS NOT NULL
+          AND coalesce(td.current_status, '') NOT IN ('REMOVED', 'REPLACED')
         """
         , nativeQuery = true)
-    Optional<List<TrainingDocument>> findByConfluenceId(@Param(CONFLUENCE_PAGE_ID) String externalId);
+    List<String> findLiveConfluencePageIds();
+
+    @Modifying
+    @Query(value = """
+        UPDATE public.training_document
+        SET metadata = jsonb_set(coalesce(metadata, '{}'::jsonb), '{REPLACED_BY_ID}', to_jsonb(cast(:replacedById AS text))),
+            updated = now()
+        WHERE id = :id
+        """
+        , nativeQuery = true)
+    void setReplacedById(@Param("id") UUID id, @Param("replacedById") UUID replacedById);
+
+    @Modifying
+    @Query("""
+        UPDATE TrainingDocument td
+        SET td.documentStatus = :documentStatus,
+            td.updated = :updated
+        WHERE td.id = :id
+        """)
+    void setCurrentStatus(@Param("id") UUID id,
+                          @Param("documentStatus") DocumentStatus documentStatus,
+                          @Param("updated") ZonedDateTime updated);
 }
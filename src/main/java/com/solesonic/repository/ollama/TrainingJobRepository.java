@@ -0,0 +1,86 @@
+package com.solesonic.repository.ollama;
+
+import com.solesonic.model.training.TrainingJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface TrainingJobRepository extends JpaRepository<TrainingJob, UUID> {
+
+    /**
+     * Locks the oldest runnable job, rows already locked by another worker are skipped rather than waited on.
+     */
+    @Query(value = """
+                SELECT tj.id
+                FROM public.training_job tj
+                WHERE tj.status = 'QUEUED'
+                  AND tj.available_at <= now()
+                ORDER BY tj.available_at
+                LIMIT 1
+                FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    Optional<UUID> findClaimable();
+
+    @Query(value = """
+                SELECT tj.id
+                FROM public.training_job tj
+                WHERE tj.status = 'RUNNING'
+                  AND tj.lease_expires_at < now()
+                FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<UUID> findExpiredLeases();
+
+    /**
+     * Share-locks the job while its lease is still held by the given owner and its document is still live. The reaper
+     * skips locked rows, so the lease cannot be taken over until the calling transaction ends.
+     */
+    @Query(value = """
+                SELECT tj.id
+                FROM public.training_job tj
+                WHERE tj.id = :id
+                  AND tj.lease_owner = :leaseOwner
+                  AND tj.status = 'RUNNING'
+                  AND tj.lease_expires_at > now()
+                  AND NOT EXISTS (SELECT 1
+                                  FROM public.training_document td
+                                  WHERE td.id = tj.training_document_id
+                                    AND td.current_status IN ('REMOVED', 'REPLACED'))
+                FOR SHARE OF tj
+            """, nativeQuery = true)
+    Optional<UUID> lockLease(@Param("id") UUID id, @Param("leaseOwner") String leaseOwner);
+
+    /**
+     * Cancels the queued or running job of a document. A worker writing it holds the row share-locked, so this waits
+     * for that write to commit and every later {@link #lockLease} fails.
+     */
+    @Modifying
+    @Query(value = """
+                UPDATE public.training_job
+                SET status = 'CANCELLED',
+                    lease_owner = NULL,
+                    lease_expires_at = NULL,
+                    updated = now()
+                WHERE training_document_id = :trainingDocumentId
+                  AND status IN ('QUEUED', 'RUNNING')
+            """, nativeQuery = true)
+    int cancelActive(@Param("trainingDocumentId") UUID trainingDocumentId);
+
+    @Modifying
+    @Query(value = """
+                UPDATE public.training_job
+                SET lease_expires_at = now() + make_interval(secs => :leaseSeconds),
+                    updated = now()
+                WHERE id IN (:ids)
+                  AND lease_owner = :leaseOwner
+                  AND status = 'RUNNING'
+            """, nativeQuery = true)
+    int extendLeases(@Param("ids") Collection<UUID> ids,
+                     @Param("leaseOwner") String leaseOwner,
+                     @Param("leaseSeconds") long leaseSeconds);
+}
@@ -2,19 +2,23 @@ package com.solesonic.repository.ollama;
 
 import com.solesonic.model.training.VectorDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
 public interface VectorStoreRepository extends JpaRepository<VectorDocument, UUID> {
 
+    /**
+     * Removes every chunk of a training document in one statement, served by
+     * {@code idx_vector_store_training_document_id}.
+     */
+    @Modifying
     @Query(value = """
-        SELECT *
-                FROM public.vector_store WHERE vector_store.metadata->>'TRAINING_DOCUMENT_ID' = :trainingDocumentId
+        DELETE FROM public.vector_store
+        WHERE training_document_id = :trainingDocumentId
         """
         , nativeQuery = true)
-    Optional<List<VectorDocument>> findByTrainingDocumentId(@Param("trainingDocumentId") String trainingDocumentId);
+    int deleteByTrainingDocumentId(@Param("trainingDocumentId") UUID trainingDocumentId);
 }
@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.util.UUID;
 
 import static com.solesonic.security.SecurityConfig.BROKER_ATLASSIAN_TOKEN;
+import static com.solesonic.security.SecurityConfig.CONFLUENCE_WEBHOOK;
 
 @Component
 @Order(1)
@@ -42,7 +43,7 @@ public class JwtUserRequestFilter extends OncePerRequestFilter {
 
         String requestPath = request.getRequestURI();
 
-        if(requestPath.endsWith(BROKER_ATLASSIAN_TOKEN)) {
+        if(requestPath.endsWith(BROKER_ATLASSIAN_TOKEN) || requestPath.endsWith(CONFLUENCE_WEBHOOK)) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -1,9 +1,7 @@
 package com.solesonic.security.atlassian;
 
 import com.solesonic.model.atlassian.auth.AtlassianAccessToken;
-import com.solesonic.model.atlassian.auth.AtlassianAuthRequest;
-import com.solesonic.model.user.UserPreferences;
-import com.solesonic.service.user.UserPreferencesService;
+import com.solesonic.service.atlassian.AtlassianTokenRefreshService;
 import jakarta.annotation.Nonnull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,27 +10,20 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.*;
 import reactor.core.publisher.Mono;
 
-import java.time.ZonedDateTime;
+import java.util.UUID;
 
-import static com.solesonic.service.atlassian.JiraAuthService.*;
 import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 
 @Component
 public class AtlassianInternalAuthorizationFilter implements ExchangeFilterFunction {
     private static final Logger log = LoggerFactory.getLogger(AtlassianInternalAuthorizationFilter.class);
-    private final UserPreferencesService userPreferencesService;
+    private final AtlassianTokenRefreshService atlassianTokenRefreshService;
 
-    @Value("${atlassian.oauth.token-uri}")
-    private String atlassianAuthUri;
+    @Value("${atlassian.service.account.user.id}")
+    private UUID serviceAccountUserId;
 
-    @Value("${atlassian.oauth.client-id}")
-    private String authClientId;
-
-    @Value("${atlassian.oauth.client-secret}")
-    private String authClientSecret;
-
-    public AtlassianInternalAuthorizationFilter(UserPreferencesService userPreferencesService) {
-        this.userPreferencesService = userPreferencesService;
+    public AtlassianInternalAuthorizationFilter(AtlassianTokenRefreshService atlassianTokenRefreshService) {
+        this.atlassianTokenRefreshService = atlassianTokenRefreshService;
     }
 
     @Override
@@ -51,53 +42,7 @@ public class AtlassianInternalAuthorizationFilter implements ExchangeFilterFunct
     }
 
     public AtlassianAccessToken atlassianAccessToken() {
-        UserPreferences serviceAccountPreferences = userPreferencesService.serviceAccount();
-        AtlassianAccessToken serviceAccountToken = serviceAccountPreferences.getAtlassianAccessToken();
-
-        if(!serviceAccountToken.isExpired()) {
-            log.debug("Reusing non expired access token for admin user.");
-            return serviceAccountToken;
-        }
-
-        AtlassianAccessToken refreshedToken = refreshToken(serviceAccountToken, authClientId, authClientSecret, atlassianAuthUri);
-
-        log.debug("Updating access token for admin user.");
-        log.debug("Admin token expiresIn: {}", refreshedToken.expiresIn());
-
-        serviceAccountPreferences.setAtlassianAccessToken(refreshedToken);
-        userPreferencesService.save(serviceAccountPreferences.getUserId(), serviceAccountPreferences);
-
-        return refreshedToken;
-    }
-
-    static AtlassianAccessToken refreshToken(AtlassianAccessToken adminUserToken, String authClientId, String authClientSecret, String atlassianAuthUri) {
-        String jiraRefreshToken = adminUserToken.refreshToken();
-
-        AtlassianAuthRequest atlassianAuthRequest = AtlassianAuthRequest.builder()
-                .grantType(REFRESH_TOKEN)
-                .clientId(authClientId)
-                .clientSecret(authClientSecret)
-                .refreshToken(jiraRefreshToken)
-                .build();
-
-        WebClient client = WebClient.create(atlassianAuthUri);
-
-        AtlassianAccessToken newAccessToken = client.post()
-                .uri(uriBuilder ->
-                        uriBuilder
-                                .pathSegment(OAUTH_PATH)
-                                .pathSegment(TOKEN_PATH)
-                                .build()
-                )
-                .bodyValue(atlassianAuthRequest)
-                .exchangeToMono(response -> response.bodyToMono(AtlassianAccessToken.class))
-                .block();
-
-        assert newAccessToken != null;
-
-        return AtlassianAccessToken.from(newAccessToken)
-                .updated(ZonedDateTime.now())
-                .created(ZonedDateTime.now())
-                .build();
+        log.debug("Resolving access token for admin user.");
+        return atlassianTokenRefreshService.accessToken(serviceAccountUserId);
     }
 }
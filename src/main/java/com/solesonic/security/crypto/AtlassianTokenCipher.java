@@ -0,0 +1,80 @@
+package com.solesonic.security.crypto;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.solesonic.model.atlassian.auth.AtlassianAccessToken;
+import org.jspecify.annotations.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.encrypt.BytesEncryptor;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * Encrypts and decrypts stored Atlassian tokens.
+ * <p>
+ * AES-GCM decryption plus a JSON parse is comparatively expensive, and the same ciphertext is read every time the
+ * owning row is loaded. Decrypted tokens are therefore cached by ciphertext until the token itself expires; a
+ * refreshed token is re-encrypted with a fresh IV, so it never collides with a stale entry.
+ */
+@Component
+public class AtlassianTokenCipher {
+
+    private final BytesEncryptor encryptor;
+    private final ObjectMapper objectMapper;
+    private final Cache<ByteBuffer, AtlassianAccessToken> decryptedTokens;
+
+    public AtlassianTokenCipher(BytesEncryptor encryptor,
+                                ObjectMapper objectMapper,
+                                @Value("${atlassian.tokens.cache.max-size:10000}") long maximumSize) {
+        this.encryptor = encryptor;
+        this.objectMapper = objectMapper;
+        this.decryptedTokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .build();
+    }
+
+    public byte[] encrypt(AtlassianAccessToken atlassianAccessToken) {
+        byte[] bytes = objectMapper.writeValueAsBytes(atlassianAccessToken);
+        return encryptor.encrypt(bytes);
+    }
+
+    public AtlassianAccessToken decrypt(byte[] encrypted) {
+        return decryptedTokens.get(ByteBuffer.wrap(encrypted), key -> {
+            byte[] decrypted = encryptor.decrypt(encrypted);
+            return objectMapper.readValue(decrypted, AtlassianAccessToken.class);
+        });
+    }
+
+    /**
+     * Keeps a decrypted token only for as long as the token is valid.
+     */
+    private static class TokenExpiry implements Expiry<ByteBuffer, AtlassianAccessToken> {
+        @Override
+        public long expireAfterCreate(@NonNull ByteBuffer key, @NonNull AtlassianAccessToken token, long currentTime) {
+            if (token.created() == null || token.expiresIn() == null) {
+                return 0;
+            }
+
+            ZonedDateTime expiresAt = token.created().plusSeconds(token.expiresIn());
+            Duration remaining = Duration.between(ZonedDateTime.now(), expiresAt);
+
+            return Math.max(0, remaining.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(@NonNull ByteBuffer key, @NonNull AtlassianAccessToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(@NonNull ByteBuffer key, @NonNull AtlassianAccessToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
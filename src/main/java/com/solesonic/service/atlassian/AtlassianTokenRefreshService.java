@@ -0,0 +1,312 @@
+package com.solesonic.service.atlassian;
+
+import com.solesonic.config.atlassian.TokenBrokerProperties;
+import com.solesonic.exception.atlassian.AtlassianTokenException;
+import com.solesonic.exception.atlassian.JiraException;
+import com.solesonic.model.atlassian.auth.AtlassianAccessToken;
+import com.solesonic.model.atlassian.auth.AtlassianAuthRequest;
+import com.solesonic.model.user.UserPreferences;
+import com.solesonic.service.user.UserPreferencesService;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.solesonic.config.atlassian.AtlassianConstants.ATLASSIAN_AUTH_WEB_CLIENT;
+import static com.solesonic.service.atlassian.JiraAuthService.OAUTH_PATH;
+import static com.solesonic.service.atlassian.JiraAuthService.REFRESH_TOKEN;
+import static com.solesonic.service.atlassian.JiraAuthService.TOKEN_PATH;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Single entry point for refreshing Atlassian OAuth tokens.
+ * <p>
+ * Atlassian rotates refresh tokens, so two concurrent refreshes for the same user will invalidate one another.
+ * Refreshes are therefore single-flight per user: callers in this JVM share one in-flight refresh, and nodes in
+ * the cluster coordinate through a short-lived Redis lock. A caller that loses the lock waits for the winner and
+ * then reuses the token it persisted.
+ */
+@Service
+public class AtlassianTokenRefreshService {
+    private static final Logger log = LoggerFactory.getLogger(AtlassianTokenRefreshService.class);
+    private static final String LOCK_KEY_PREFIX = "atlassian:token-refresh:lock:";
+
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('del', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final UserPreferencesService userPreferencesService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TokenBrokerProperties tokenBrokerProperties;
+    private final WebClient authWebClient;
+
+    private final ConcurrentMap<UUID, CompletableFuture<AtlassianAccessToken>> inFlightRefreshes = new ConcurrentHashMap<>();
+
+    @Value("${atlassian.oauth.client-id}")
+    private String authClientId;
+
+    @Value("${atlassian.oauth.client-secret}")
+    private String authClientSecret;
+
+    public AtlassianTokenRefreshService(UserPreferencesService userPreferencesService,
+                                        StringRedisTemplate stringRedisTemplate,
+                                        TokenBrokerProperties tokenBrokerProperties,
+                                        @Qualifier(ATLASSIAN_AUTH_WEB_CLIENT) WebClient authWebClient) {
+        this.userPreferencesService = userPreferencesService;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.tokenBrokerProperties = tokenBrokerProperties;
+        this.authWebClient = authWebClient;
+    }
+
+    /**
+     * Returns a non-expired access token for the user, refreshing it first when required.
+     *
+     * @param userId The user the token belongs to
+     * @return A usable access token
+     */
+    public AtlassianAccessToken accessToken(UUID userId) {
+        AtlassianAccessToken atlassianAccessToken = currentToken(userId);
+
+        if (!atlassianAccessToken.isExpired()) {
+            log.debug("Reusing non expired access token for user: {}", userId);
+            return atlassianAccessToken;
+        }
+
+        return refresh(userId);
+    }
+
+    /**
+     * Refreshes the user's token, joining a refresh that is already in flight for the same user.
+     *
+     * @param userId The user the token belongs to
+     * @return The refreshed (or concurrently refreshed) access token
+     */
+    public AtlassianAccessToken refresh(UUID userId) {
+        return refreshAhead(userId, Duration.ZERO);
+    }
+
+    /**
+     * Refreshes the user's token if it expires within the given window, so background callers can renew tokens
+     * before a request ever sees them expire.
+     *
+     * @param userId The user the token belongs to
+     * @param window How far ahead of expiry the token should be renewed
+     * @return The current or refreshed access token
+     */
+    public AtlassianAccessToken refreshAhead(UUID userId, Duration window) {
+        CompletableFuture<AtlassianAccessToken> refresh = new CompletableFuture<>();
+        CompletableFuture<AtlassianAccessToken> inFlight = inFlightRefreshes.putIfAbsent(userId, refresh);
+
+        if (inFlight != null) {
+            log.debug("Joining in flight token refresh for user: {}", userId);
+            return join(inFlight);
+        }
+
+        try {
+            AtlassianAccessToken refreshedToken = refreshWithLock(userId, window);
+            refresh.complete(refreshedToken);
+            return refreshedToken;
+        } catch (RuntimeException exception) {
+            refresh.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            inFlightRefreshes.remove(userId, refresh);
+        }
+    }
+
+    private AtlassianAccessToken refreshWithLock(UUID userId, Duration window) {
+        TokenBrokerProperties.Lock lockProperties = tokenBrokerProperties.getLock();
+
+        String lockKey = LOCK_KEY_PREFIX + userId;
+        String lockOwner = UUID.randomUUID().toString();
+        Duration lockTtl = Duration.ofSeconds(lockProperties.getTtlSeconds());
+        long waitDeadline = System.nanoTime() + Duration.ofSeconds(lockProperties.getWaitSeconds()).toNanos();
+
+        while (true) {
+            //Another node may have refreshed the token while we were waiting on the lock. Never trust the near-cache
+            //here, refreshing with an already rotated refresh token would force the user to reconnect.
+            userPreferencesService.evict(userId);
+            AtlassianAccessToken currentToken = currentToken(userId);
+
+            if (!currentToken.expiresWithin(window)) {
+                log.debug("Token for user {} is current, skipping refresh", userId);
+                return currentToken;
+            }
+
+            Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, lockOwner, lockTtl);
+
+            if (Boolean.TRUE.equals(acquired)) {
+                try {
+                    //Re-read under the lock, the previous holder may have released it right after persisting
+                    userPreferencesService.evict(userId);
+                    AtlassianAccessToken lockedToken = currentToken(userId);
+
+                    if (!lockedToken.expiresWithin(window)) {
+                        return lockedToken;
+                    }
+
+                    return refreshAndSave(userId, lockedToken);
+                } finally {
+                    stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(lockKey), lockOwner);
+                }
+            }
+
+            if (System.nanoTime() > waitDeadline) {
+                throw new AtlassianTokenException("Timed out waiting for token refresh of user " + userId, SERVICE_UNAVAILABLE, true);
+            }
+
+            log.debug("Token refresh for user {} is held by another node, waiting", userId);
+            pause(lockProperties.getPollIntervalMs());
+        }
+    }
+
+    private AtlassianAccessToken refreshAndSave(UUID userId, AtlassianAccessToken expiredToken) {
+        AtlassianAccessToken refreshedToken = requestRefresh(expiredToken.refreshToken());
+
+        //Atlassian only returns a new refresh token when rotation is enabled, keep the old one otherwise
+        String refreshToken = StringUtils.defaultIfEmpty(refreshedToken.refreshToken(), expiredToken.refreshToken());
+
+        AtlassianAccessToken atlassianAccessToken = AtlassianAccessToken.from(refreshedToken)
+                .userId(expiredToken.userId())
+                .administrator(expiredToken.administrator())
+                .refreshToken(refreshToken)
+                .created(ZonedDateTime.now())
+                .updated(ZonedDateTime.now())
+                .build();
+
+        log.info("Updating access token for user: {}", userId);
+        userPreferencesService.update(userId, atlassianAccessToken);
+
+        return atlassianAccessToken;
+    }
+
+    private AtlassianAccessToken requestRefresh(String refreshToken) {
+        TokenBrokerProperties.Retry retryProperties = tokenBrokerProperties.getRetry();
+
+        AtlassianAuthRequest atlassianAuthRequest = AtlassianAuthRequest.builder()
+                .grantType(REFRESH_TOKEN)
+                .clientId(authClientId)
+                .clientSecret(authClientSecret)
+                .refreshToken(refreshToken)
+                .build();
+
+        long retries = Math.max(0, retryProperties.getMaxAttempts() - 1);
+        double jitter = retryProperties.isJitter() ? 0.5 : 0;
+
+        AtlassianAccessToken atlassianAccessToken = authWebClient.post()
+                .uri(uriBuilder ->
+                        uriBuilder
+                                .pathSegment(OAUTH_PATH)
+                                .pathSegment(TOKEN_PATH)
+                                .build()
+                )
+                .bodyValue(atlassianAuthRequest)
+                .exchangeToMono(response -> response.bodyToMono(AtlassianAccessToken.class))
+                .retryWhen(Retry.backoff(retries, Duration.ofMillis(retryProperties.getBaseDelayMs()))
+                        .jitter(jitter)
+                        .filter(this::isRetriable)
+                        .doBeforeRetry(retrySignal -> log.warn("Retrying Atlassian token refresh, attempt {}: {}",
+                                retrySignal.totalRetries() + 2, retrySignal.failure().getMessage()))
+                        .onRetryExhaustedThrow((_, retrySignal) -> retrySignal.failure()))
+                .onErrorMap(this::isNotTokenException, this::toTokenException)
+                .block();
+
+        if (atlassianAccessToken == null) {
+            throw new AtlassianTokenException("Empty token refresh response", SERVICE_UNAVAILABLE, true);
+        }
+
+        if (StringUtils.isNotEmpty(atlassianAccessToken.error())) {
+            String exceptionMessage = atlassianAccessToken.error() + ": " + atlassianAccessToken.errorDescription();
+            throw new AtlassianTokenException(exceptionMessage, SERVICE_UNAVAILABLE, true);
+        }
+
+        log.info("Token refresh successful");
+
+        return atlassianAccessToken;
+    }
+
+    private AtlassianAccessToken currentToken(UUID userId) {
+        UserPreferences userPreferences = userPreferencesService.get(userId);
+        AtlassianAccessToken atlassianAccessToken = userPreferences.getAtlassianAccessToken();
+
+        if (atlassianAccessToken == null) {
+            log.warn("No refresh token found for user {} - RECONNECT_REQUIRED", userId);
+            throw new AtlassianTokenException("No refresh token found for user " + userId, BAD_REQUEST, false);
+        }
+
+        return atlassianAccessToken;
+    }
+
+    private boolean isRetriable(Throwable throwable) {
+        if (throwable instanceof WebClientRequestException) {
+            return true;
+        }
+
+        if (throwable instanceof JiraException jiraException && jiraException.getResponse() != null) {
+            HttpStatusCode statusCode = jiraException.getResponse().statusCode();
+            return statusCode.is5xxServerError() || statusCode.value() == 429;
+        }
+
+        return false;
+    }
+
+    private boolean isNotTokenException(Throwable throwable) {
+        return !(throwable instanceof AtlassianTokenException);
+    }
+
+    private Throwable toTokenException(Throwable throwable) {
+        if (throwable instanceof JiraException jiraException && jiraException.getResponse() != null) {
+            HttpStatusCode statusCode = jiraException.getResponse().statusCode();
+            boolean retriable = isRetriable(throwable);
+
+            //A rejected refresh token comes back as a 4xx, the user has to re-consent
+            HttpStatusCode errorCode = statusCode.is4xxClientError() && !retriable ? BAD_REQUEST : statusCode;
+            return new AtlassianTokenException(jiraException.getMessage(), errorCode, retriable, jiraException);
+        }
+
+        return new AtlassianTokenException("Atlassian token refresh failed", SERVICE_UNAVAILABLE, true, throwable);
+    }
+
+    private static AtlassianAccessToken join(CompletableFuture<AtlassianAccessToken> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+
+            throw exception;
+        }
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new AtlassianTokenException("Interrupted waiting for token refresh", SERVICE_UNAVAILABLE, true, exception);
+        }
+    }
+}
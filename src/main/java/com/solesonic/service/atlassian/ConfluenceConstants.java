@@ -14,4 +14,8 @@ public class ConfluenceConstants {
     public static final String SPACES_PATH = "spaces";
 
     public static final String STORAGE_FORMAT = "storage";
+
+    public static final String CURSOR = "cursor";
+    public static final String SORT_MODIFIED_DATE_DESC = "-modified-date";
+    public static final int MAX_PAGE_LIMIT = 250;
 }
\ No newline at end of file
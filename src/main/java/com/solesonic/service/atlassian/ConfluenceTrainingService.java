@@ -1,28 +1,42 @@
 package com.solesonic.service.atlassian;
 
 import com.solesonic.model.atlassian.confluence.ConfluencePagesResponse;
+import com.solesonic.model.atlassian.confluence.ConfluenceScanState;
 import com.solesonic.model.atlassian.confluence.Page;
+import com.solesonic.model.training.ConfluencePageVersion;
 import com.solesonic.model.training.DocumentStatus;
 import com.solesonic.model.training.TrainingDocument;
-import com.solesonic.model.training.VectorDocument;
+import com.solesonic.repository.atlassian.ConfluenceScanStateRepository;
+import com.solesonic.service.etl.TrainingJobService;
 import com.solesonic.service.rag.TrainingDocumentService;
 import com.solesonic.service.rag.VectorStoreService;
 import org.apache.commons.collections4.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.ZonedDateTime;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.solesonic.config.atlassian.AtlassianConstants.ATLASSIAN_API_INTERNAL_CLIENT;
+import static com.solesonic.model.atlassian.confluence.ConfluenceScanState.PAGE_SCAN;
 import static com.solesonic.model.document.DocumentSource.CONFLUENCE;
-import static com.solesonic.model.training.TrainingDocument.*;
+import static com.solesonic.model.training.TrainingDocument.CONFLUENCE_PAGE_ID;
+import static com.solesonic.model.training.TrainingDocument.CONFLUENCE_PAGE_VERSION;
 import static com.solesonic.service.atlassian.ConfluenceConstants.*;
 import static org.springframework.http.MediaType.TEXT_HTML_VALUE;
 
@@ -31,66 +45,264 @@ public class ConfluenceTrainingService {
     private static final Logger log = LoggerFactory.getLogger(ConfluenceTrainingService.class);
     private final TrainingDocumentService trainingDocumentService;
     private final VectorStoreService vectorStoreService;
+    private final TrainingJobService trainingJobService;
+    private final TransactionTemplate transactionTemplate;
     private final WebClient webClient;
+    private final ConfluenceScanStateRepository confluenceScanStateRepository;
+    private final int bodyFetchParallelism;
 
     private static final String CONFLUENCE_DOCUMENT_FILENAME_TEMPLATE = "[Confluence] %s (v%s)";
 
+    /**
+     * Pages are listed newest first, re-list a little before the high-water mark so an edit that landed while the
+     * previous scan was running is not missed.
+     */
+    private static final Duration HIGH_WATER_MARK_OVERLAP = Duration.ofMinutes(10);
+
     public ConfluenceTrainingService(TrainingDocumentService trainingDocumentService,
                                      VectorStoreService vectorStoreService,
-                                     @Qualifier(ATLASSIAN_API_INTERNAL_CLIENT) WebClient webClient) {
+                                     TrainingJobService trainingJobService,
+                                     TransactionTemplate transactionTemplate,
+                                     @Qualifier(ATLASSIAN_API_INTERNAL_CLIENT) WebClient webClient,
+                                     ConfluenceScanStateRepository confluenceScanStateRepository,
+                                     @Value("${confluence.training.body-fetch-parallelism:4}") int bodyFetchParallelism) {
         this.trainingDocumentService = trainingDocumentService;
         this.vectorStoreService = vectorStoreService;
+        this.trainingJobService = trainingJobService;
+        this.transactionTemplate = transactionTemplate;
         this.webClient = webClient;
+        this.confluenceScanStateRepository = confluenceScanStateRepository;
+        this.bodyFetchParallelism = bodyFetchParallelism;
     }
 
+    /**
+     * Lists pages modified since the last successful scan (id and version only), then downloads and queues the body
+     * of each page whose version is newer than the one already trained on.
+     */
     public void pageScan() {
-        //get all confluence pages
-        ConfluencePagesResponse confluencePagesResponse = adminPages();
-        List<Page> pages = confluencePagesResponse.getResults();
-
-        if (CollectionUtils.isNotEmpty(pages)) {
-            for (Page confluencePage : pages) {
-                String pageId = confluencePage.getId();
-
-                //look for existing training documents, have we added this confluence page to rag before?
-                List<TrainingDocument> trainingDocuments = trainingDocumentService.findByConfluencePageId(pageId);
-
-                if (CollectionUtils.isNotEmpty(trainingDocuments)) {
-                    //Get the training document with the highest version number;
-                    TrainingDocument newestTrainingDocument = trainingDocuments.stream()
-                            .max(Comparator.comparing(doc -> (Integer) doc.getMetadata().get(CONFLUENCE_PAGE_VERSION)))
-                            .orElse(null);
-
-                    assert newestTrainingDocument != null;
-                    Map<String, Object> trainingDocumentMetadata = newestTrainingDocument.getMetadata();
-                    Object documentVersion = trainingDocumentMetadata.get(CONFLUENCE_PAGE_VERSION);
-
-                    if (documentVersion != null) {
-                        int confluencePageVersion = confluencePage.getVersion().getNumber();
-                        int trainingDocumentPageVersion = Integer.parseInt(documentVersion.toString());
-
-                        //there is a new version in confluence, remove the old version and add the new one
-                        if (confluencePageVersion > trainingDocumentPageVersion) {
-                            List<VectorDocument> vectorDocuments = vectorStoreService.findByTrainingDocumentId(newestTrainingDocument.getId());
-                            vectorStoreService.delete(vectorDocuments);
-
-                            //queue the new version of the confluence page to add it to rag
-                            TrainingDocument queuedTrainingDocument = queue(confluencePage);
-                            trainingDocumentMetadata.put(REPLACED_BY_ID, queuedTrainingDocument.getId());
-                            trainingDocumentService.update(newestTrainingDocument, DocumentStatus.REPLACED);
-                        }
-                    }
-                } else {
-                    //if the confluence page has never been added to rag then queue it
-                    queue(confluencePage);
-                }
+        scan(false);
+    }
+
+    /**
+     * Catches up on anything webhooks missed. Lists every page regardless of the high-water mark, ingests changed ones
+     * like {@link #pageScan} and removes ingested pages that are no longer listed, such as deletions whose
+     * {@code page_removed} webhook was lost.
+     */
+    public void reconcile() {
+        scan(true);
+    }
+
+    private void scan(boolean fullListing) {
+        ConfluenceScanState scanState = confluenceScanStateRepository.findById(PAGE_SCAN)
+                .orElseGet(() -> {
+                    ConfluenceScanState newScanState = new ConfluenceScanState();
+                    newScanState.setId(PAGE_SCAN);
+                    return newScanState;
+                });
+
+        ZonedDateTime highWaterMark = scanState.getHighWaterMark();
+        ZonedDateTime modifiedSince = fullListing || highWaterMark == null ? null : highWaterMark.minus(HIGH_WATER_MARK_OVERLAP);
+
+        List<Page> modifiedPages = modifiedPages(modifiedSince);
+        log.info("Found {} Confluence pages modified since {}", modifiedPages.size(), modifiedSince);
+
+        //page id to the newest training document for that page, for pages that are being replaced
+        Map<String, UUID> replacedTrainingDocumentIds = new HashMap<>();
+        List<Page> changedPages = changedPages(modifiedPages, replacedTrainingDocumentIds);
+
+        log.info("Fetching {} changed Confluence pages", changedPages.size());
+
+        //a page that fails is skipped, the rest of the scan still goes ahead
+        Set<String> failedPageIds = ConcurrentHashMap.newKeySet();
+
+        //Bodies download concurrently, training documents are written on this thread as they arrive
+        Iterable<Page> fetchedPages = Flux.fromIterable(changedPages)
+                .flatMap(changedPage -> page(changedPage.getId())
+                        .onErrorResume(exception -> {
+                            log.warn("Skipping Confluence page {}, fetching its body failed: {}",
+                                    changedPage.getId(), exception.toString());
+                            failedPageIds.add(changedPage.getId());
+                            return Mono.empty();
+                        }), bodyFetchParallelism)
+                .toIterable();
+
+        for (Page confluencePage : fetchedPages) {
+            try {
+                ingest(confluencePage, replacedTrainingDocumentIds.get(confluencePage.getId()));
+            } catch (RuntimeException e) {
+                log.warn("Skipping Confluence page {}, queuing it failed: {}", confluencePage.getId(), e.toString());
+                failedPageIds.add(confluencePage.getId());
             }
         }
+
+        if (fullListing) {
+            removeUnlisted(modifiedPages);
+        }
+
+        nextHighWaterMark(modifiedPages, failedPageIds)
+                .filter(newest -> highWaterMark == null || newest.isAfter(highWaterMark))
+                .ifPresent(newest -> {
+                    scanState.setHighWaterMark(newest);
+                    scanState.setUpdated(ZonedDateTime.now());
+                    confluenceScanStateRepository.save(scanState);
+                });
+    }
+
+    /**
+     * Removes every live page missing from a complete listing. An empty listing removes nothing, it is far more likely
+     * to be a permission or API problem than a space that was emptied.
+     */
+    private void removeUnlisted(List<Page> listedPages) {
+        if (listedPages.isEmpty()) {
+            log.warn("Confluence listed no pages, not removing any");
+            return;
+        }
+
+        Set<String> listedPageIds = new HashSet<>(listedPages.stream().map(Page::getId).toList());
+
+        List<String> unlistedPageIds = trainingDocumentService.liveConfluencePageIds().stream()
+                .filter(pageId -> !listedPageIds.contains(pageId))
+                .toList();
+
+        if (!unlistedPageIds.isEmpty()) {
+            log.info("Removing {} Confluence pages that are no longer listed", unlistedPageIds.size());
+        }
+
+        for (String pageId : unlistedPageIds) {
+            try {
+                remove(pageId);
+            } catch (RuntimeException e) {
+                log.warn("Failed to remove Confluence page {}: {}", pageId, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Newest modification seen by the scan, held back to the oldest page that failed so the next scan, which re-lists
+     * a little before the mark, picks that page up again. Does not advance when a failed page has no date.
+     */
+    private static Optional<ZonedDateTime> nextHighWaterMark(List<Page> modifiedPages, Set<String> failedPageIds) {
+        List<ZonedDateTime> failedModifiedAt = modifiedPages.stream()
+                .filter(confluencePage -> failedPageIds.contains(confluencePage.getId()))
+                .map(ConfluenceTrainingService::modifiedAt)
+                .toList();
+
+        if (failedModifiedAt.stream().anyMatch(Objects::isNull)) {
+            return Optional.empty();
+        }
+
+        if (!failedModifiedAt.isEmpty()) {
+            return failedModifiedAt.stream().min(Comparator.naturalOrder());
+        }
+
+        return modifiedPages.stream()
+                .map(ConfluenceTrainingService::modifiedAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder());
+    }
+
+    /**
+     * Re-ingests a single page, used for webhook events. Does nothing if that version was already ingested.
+     */
+    public void reingest(String pageId) {
+        Page confluencePage = page(pageId)
+                .onErrorResume(WebClientResponseException.NotFound.class, _ -> Mono.empty())
+                .block();
+
+        if (confluencePage == null) {
+            log.warn("Confluence page {} not found, skipping re-ingestion", pageId);
+            return;
+        }
+
+        Map<String, UUID> replacedTrainingDocumentIds = new HashMap<>();
+
+        for (Page changedPage : changedPages(List.of(confluencePage), replacedTrainingDocumentIds)) {
+            ingest(changedPage, replacedTrainingDocumentIds.get(pageId));
+        }
+    }
+
+    /**
+     * Drops a deleted or trashed page from rag. Its job is cancelled first, in the same transaction, so a worker still
+     * training the page cannot write vectors after they were deleted.
+     */
+    public void remove(String pageId) {
+        ConfluencePageVersion latestVersion = trainingDocumentService.latestConfluencePageVersions(List.of(pageId)).get(pageId);
+
+        if (latestVersion == null) {
+            return;
+        }
+
+        log.info("Removing Confluence page {} from rag", pageId);
+
+        UUID trainingDocumentId = latestVersion.getTrainingDocumentId();
+
+        transactionTemplate.executeWithoutResult(_ -> {
+            trainingJobService.cancel(trainingDocumentId);
+            vectorStoreService.deleteByTrainingDocumentId(trainingDocumentId);
+            trainingDocumentService.status(trainingDocumentId, DocumentStatus.REMOVED);
+        });
+    }
+
+    /**
+     * Pages that are new or newer than the version already ingested. Pages replacing an ingested version have that
+     * training document's id put in {@code replacedTrainingDocumentIds}.
+     */
+    private List<Page> changedPages(List<Page> confluencePages, Map<String, UUID> replacedTrainingDocumentIds) {
+        //one set-based lookup for the whole listing instead of a query per page
+        List<String> pageIds = confluencePages.stream().map(Page::getId).toList();
+        Map<String, ConfluencePageVersion> latestVersions = trainingDocumentService.latestConfluencePageVersions(pageIds);
+
+        List<Page> changedPages = new ArrayList<>();
+
+        for (Page confluencePage : confluencePages) {
+            String pageId = confluencePage.getId();
+
+            //have we added this confluence page to rag before?
+            ConfluencePageVersion latestVersion = latestVersions.get(pageId);
+
+            if (latestVersion == null) {
+                //if the confluence page has never been added to rag then queue it
+                changedPages.add(confluencePage);
+                continue;
+            }
+
+            Integer trainingDocumentPageVersion = latestVersion.getVersion();
+
+            //there is a new version in confluence, remove the old version and add the new one
+            if (trainingDocumentPageVersion != null && confluencePage.getVersion().getNumber() > trainingDocumentPageVersion) {
+                replacedTrainingDocumentIds.put(pageId, latestVersion.getTrainingDocumentId());
+                changedPages.add(confluencePage);
+            }
+        }
+
+        return changedPages;
+    }
+
+    private void ingest(Page confluencePage, UUID replacedTrainingDocumentId) {
+        if (replacedTrainingDocumentId != null) {
+            replace(replacedTrainingDocumentId, confluencePage);
+        } else {
+            queue(confluencePage);
+        }
+    }
+
+    /**
+     * Swaps in the new version of a page in one transaction, see {@link #remove}.
+     */
+    private void replace(UUID replacedTrainingDocumentId, Page confluencePage) {
+        transactionTemplate.executeWithoutResult(_ -> {
+            trainingJobService.cancel(replacedTrainingDocumentId);
+            vectorStoreService.deleteByTrainingDocumentId(replacedTrainingDocumentId);
+
+            //queue the new version of the confluence page to add it to rag
+            TrainingDocument queuedTrainingDocument = queue(confluencePage);
+            trainingDocumentService.replace(replacedTrainingDocumentId, queuedTrainingDocument.getId());
+        });
     }
 
     public TrainingDocument queue(Page confluencePage) {
         String title = confluencePage.getTitle();
-        byte[] fileData = confluencePage.getBody().getStorage().getValue().getBytes();
+        byte[] fileData = confluencePage.getBody().getStorage().getValue().getBytes(StandardCharsets.UTF_8);
         String pageId = confluencePage.getId();
         int version = confluencePage.getVersion().getNumber();
 
@@ -103,28 +315,105 @@ public class ConfluenceTrainingService {
         TrainingDocument trainingDocument = new TrainingDocument();
         trainingDocument.setDocumentStatus(DocumentStatus.QUEUED);
         trainingDocument.setFileName(trainingDocumentFilename);
-        trainingDocument.setFileData(fileData);
         trainingDocument.setContentType(TEXT_HTML_VALUE);
         trainingDocument.setMetadata(metadata);
         trainingDocument.setDocumentSource(CONFLUENCE);
         trainingDocument.setCreated(ZonedDateTime.now());
         trainingDocument.setUpdated(ZonedDateTime.now());
 
-        trainingDocumentService.save(trainingDocument);
+        trainingDocumentService.save(trainingDocument, new ByteArrayInputStream(fileData));
 
         return trainingDocument;
     }
 
-    public ConfluencePagesResponse adminPages() {
-        log.info("Getting Confluence documents.");
+    /**
+     * Follows the {@code _links.next} cursor through pages sorted newest first, stopping at the first page last
+     * modified before {@code modifiedSince}. The listing carries ids and versions only, no bodies.
+     */
+    private List<Page> modifiedPages(ZonedDateTime modifiedSince) {
+        List<Page> modifiedPages = new ArrayList<>();
+        String cursor = null;
+
+        do {
+            ConfluencePagesResponse confluencePagesResponse = pages(cursor);
+
+            if (confluencePagesResponse == null || CollectionUtils.isEmpty(confluencePagesResponse.getResults())) {
+                break;
+            }
+
+            for (Page confluencePage : confluencePagesResponse.getResults()) {
+                ZonedDateTime modifiedAt = modifiedAt(confluencePage);
+
+                if (modifiedSince != null && modifiedAt != null && modifiedAt.isBefore(modifiedSince)) {
+                    return modifiedPages;
+                }
+
+                modifiedPages.add(confluencePage);
+            }
+
+            cursor = nextCursor(confluencePagesResponse);
+        } while (cursor != null);
+
+        return modifiedPages;
+    }
+
+    private ConfluencePagesResponse pages(String cursor) {
+        log.debug("Listing Confluence pages, cursor: {}", cursor);
+
+        return webClient.get()
+                .uri(uriBuilder -> {
+                    uriBuilder.pathSegment(basePathSegments)
+                            .pathSegment(PAGES_PATH)
+                            .queryParam("limit", MAX_PAGE_LIMIT)
+                            .queryParam("sort", SORT_MODIFIED_DATE_DESC);
+
+                    if (cursor == null) {
+                        return uriBuilder.build();
+                    }
+
+                    //Passed as a variable so the opaque cursor is strictly encoded
+                    return uriBuilder.queryParam(CURSOR, "{cursor}").build(cursor);
+                })
+                //an error must fail the scan, a listing cut short would look like deleted pages
+                .exchangeToMono(response -> response.statusCode().isError()
+                        ? response.createError()
+                        : response.bodyToMono(ConfluencePagesResponse.class))
+                .block();
+    }
+
+    private Mono<Page> page(String id) {
         return webClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .pathSegment(basePathSegments)
                         .pathSegment(PAGES_PATH)
+                        .pathSegment(id)
                         .queryParam("body-format", STORAGE_FORMAT)
                         .build())
-                .exchangeToMono(response -> response.bodyToMono(ConfluencePagesResponse.class))
-                .block();
+                .exchangeToMono(response -> response.statusCode().isError()
+                        ? response.createError()
+                        : response.bodyToMono(Page.class));
+    }
+
+    private static String nextCursor(ConfluencePagesResponse confluencePagesResponse) {
+        if (confluencePagesResponse.getLinks() == null || confluencePagesResponse.getLinks().getNext() == null) {
+            return null;
+        }
 
+        String next = confluencePagesResponse.getLinks().getNext();
+        String cursor = UriComponentsBuilder.fromUriString(next).build().getQueryParams().getFirst(CURSOR);
+
+        return cursor == null ? null : UriUtils.decode(cursor, StandardCharsets.UTF_8);
+    }
+
+    private static ZonedDateTime modifiedAt(Page confluencePage) {
+        if (confluencePage.getVersion() == null || confluencePage.getVersion().getCreatedAt() == null) {
+            return null;
+        }
+
+        try {
+            return ZonedDateTime.parse(confluencePage.getVersion().getCreatedAt());
+        } catch (DateTimeParseException _) {
+            return null;
+        }
     }
 }
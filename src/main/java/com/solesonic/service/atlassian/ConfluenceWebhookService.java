@@ -0,0 +1,157 @@
+package com.solesonic.service.atlassian;
+
+import com.solesonic.model.atlassian.confluence.ConfluenceWebhookEvent;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Receives Confluence page webhooks and re-ingests just the affected pages.
+ * <p>
+ * Events are debounced in a Redis sorted set scored by when the page becomes due, every further edit pushes that
+ * time back, so a burst of saves turns into one re-ingestion. Any node may drain the set, removing a page id from it
+ * decides which node processes it.
+ */
+@Service
+public class ConfluenceWebhookService {
+    private static final Logger log = LoggerFactory.getLogger(ConfluenceWebhookService.class);
+
+    private static final String HMAC_SHA256 = "HmacSHA256";
+    private static final String SIGNATURE_PREFIX = "sha256=";
+
+    private static final String PENDING_PAGES_KEY = "confluence:webhook:pending";
+    private static final String REMOVED_PAGES_KEY = "confluence:webhook:removed";
+    private static final String DELIVERED_KEY_PREFIX = "confluence:webhook:delivered:";
+
+    private final ConfluenceTrainingService confluenceTrainingService;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${confluence.webhook.secret:}")
+    private String webhookSecret;
+
+    @Value("${confluence.webhook.debounce-seconds:60}")
+    private long debounceSeconds;
+
+    @Value("${confluence.webhook.replay-window-seconds:300}")
+    private long replayWindowSeconds;
+
+    public ConfluenceWebhookService(ConfluenceTrainingService confluenceTrainingService,
+                                    StringRedisTemplate stringRedisTemplate) {
+        this.confluenceTrainingService = confluenceTrainingService;
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * Checks the {@code X-Hub-Signature} header, an HMAC-SHA256 of the raw body keyed with the webhook secret.
+     * Without a configured secret every request is rejected.
+     */
+    public boolean isValidSignature(byte[] body, String signature) {
+        if (StringUtils.isBlank(webhookSecret) || signature == null || !signature.startsWith(SIGNATURE_PREFIX)) {
+            return false;
+        }
+
+        try {
+            Mac mac = Mac.getInstance(HMAC_SHA256);
+            mac.init(new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256));
+
+            byte[] expected = mac.doFinal(body);
+            byte[] actual = HexFormat.of().parseHex(signature.substring(SIGNATURE_PREFIX.length()));
+
+            return MessageDigest.isEqual(expected, actual);
+        } catch (GeneralSecurityException | IllegalArgumentException exception) {
+            log.warn("Unable to verify Confluence webhook signature: {}", exception.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Only events sent within the replay window either side of now are accepted, so a captured payload stops working
+     * once its signature has aged out of the delivered set.
+     */
+    public boolean isWithinReplayWindow(ConfluenceWebhookEvent confluenceWebhookEvent) {
+        Long timestamp = confluenceWebhookEvent.getTimestamp();
+
+        if (timestamp == null) {
+            return false;
+        }
+
+        return Math.abs(System.currentTimeMillis() - timestamp) <= replayWindowSeconds * 1000;
+    }
+
+    /**
+     * Records a signed payload as delivered, false when it was already seen. Entries outlive the replay window, so a
+     * replay is either remembered or too old.
+     */
+    public boolean markDelivered(String signature) {
+        Boolean first = stringRedisTemplate.opsForValue()
+                .setIfAbsent(DELIVERED_KEY_PREFIX + signature, "1", Duration.ofSeconds(replayWindowSeconds * 2));
+
+        return Boolean.TRUE.equals(first);
+    }
+
+    public void accept(ConfluenceWebhookEvent confluenceWebhookEvent) {
+        String pageId = confluenceWebhookEvent.pageId();
+
+        if (pageId == null) {
+            log.debug("Ignoring Confluence webhook {} without a page", confluenceWebhookEvent.getWebhookEvent());
+            return;
+        }
+
+        log.debug("Confluence webhook {} for page {}", confluenceWebhookEvent.getWebhookEvent(), pageId);
+
+        if (confluenceWebhookEvent.isRemoval()) {
+            stringRedisTemplate.opsForSet().add(REMOVED_PAGES_KEY, pageId);
+        } else {
+            stringRedisTemplate.opsForSet().remove(REMOVED_PAGES_KEY, pageId);
+        }
+
+        double dueAt = System.currentTimeMillis() + debounceSeconds * 1000;
+        stringRedisTemplate.opsForZSet().add(PENDING_PAGES_KEY, pageId, dueAt);
+    }
+
+    /**
+     * Re-ingests or removes every page whose debounce window has passed.
+     */
+    public void drain() {
+        Set<String> duePageIds = stringRedisTemplate.opsForZSet()
+                .rangeByScore(PENDING_PAGES_KEY, 0, System.currentTimeMillis());
+
+        if (duePageIds == null) {
+            return;
+        }
+
+        for (String pageId : duePageIds) {
+            Long claimed = stringRedisTemplate.opsForZSet().remove(PENDING_PAGES_KEY, pageId);
+
+            //Another node got to it first
+            if (claimed == null || claimed == 0) {
+                continue;
+            }
+
+            try {
+                Long removed = stringRedisTemplate.opsForSet().remove(REMOVED_PAGES_KEY, pageId);
+
+                if (removed != null && removed > 0) {
+                    confluenceTrainingService.remove(pageId);
+                } else {
+                    confluenceTrainingService.reingest(pageId);
+                }
+            } catch (RuntimeException exception) {
+                //The reconciliation scan will pick the page up if it keeps failing
+                log.warn("Failed to process Confluence webhook for page {}: {}", pageId, exception.getMessage());
+            }
+        }
+    }
+}
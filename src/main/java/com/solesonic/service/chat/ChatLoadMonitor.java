@@ -0,0 +1,79 @@
+package com.solesonic.service.chat;
+
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interactive load on this node: generations in flight and a smoothed time to first token, so background work
+ * can yield the model to users.
+ */
+@Service
+public class ChatLoadMonitor {
+
+    //Weight of the newest sample in the time to first token average
+    private static final double TTFT_SMOOTHING = 0.3;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double timeToFirstTokenMs;
+    private volatile long lastSampleNanos;
+
+    /**
+     * Starts tracking a generation, the returned handle must be ended when the generation completes.
+     */
+    public Generation start() {
+        inFlight.incrementAndGet();
+        return new Generation(System.nanoTime());
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Smoothed time to first token, or zero when no token was produced within the window.
+     */
+    public long timeToFirstTokenMs(long windowMs) {
+        long sampleAgeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastSampleNanos);
+
+        if (lastSampleNanos == 0 || sampleAgeMs > windowMs) {
+            return 0;
+        }
+
+        return Math.round(timeToFirstTokenMs);
+    }
+
+    private synchronized void recordTimeToFirstToken(long elapsedNanos) {
+        double elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+
+        timeToFirstTokenMs = lastSampleNanos == 0
+                ? elapsedMs
+                : TTFT_SMOOTHING * elapsedMs + (1 - TTFT_SMOOTHING) * timeToFirstTokenMs;
+        lastSampleNanos = System.nanoTime();
+    }
+
+    public final class Generation {
+        private final long startNanos;
+        private final AtomicBoolean firstToken = new AtomicBoolean();
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private Generation(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        public void firstToken() {
+            if (firstToken.compareAndSet(false, true)) {
+                recordTimeToFirstToken(System.nanoTime() - startNanos);
+            }
+        }
+
+        public void end() {
+            if (ended.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
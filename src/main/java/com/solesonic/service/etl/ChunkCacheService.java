@@ -0,0 +1,227 @@
+package com.solesonic.service.etl;
+
+import com.pgvector.PGvector;
+import com.solesonic.model.training.EmbeddedDocument;
+import com.solesonic.service.rag.VectorStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.DefaultContentFormatter;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.*;
+
+import static com.solesonic.service.etl.EtlKeywordEnricher.EXCERPT_KEYWORDS;
+import static com.solesonic.service.etl.EtlMetadataEnricher.NEXT_SECTION_SUMMARY;
+import static com.solesonic.service.etl.EtlMetadataEnricher.PREV_SECTION_SUMMARY;
+import static com.solesonic.service.etl.EtlMetadataEnricher.SECTION_SUMMARY;
+
+/**
+ * Content-addressed store of chunk enrichment and embeddings. Re-ingesting a document, typically a new version of a
+ * Confluence page, only calls the models for chunks whose text changed. Enrichment is keyed by the chunk text alone,
+ * embeddings by the exact text sent to the embedding model, so a chunk whose neighbours changed is embedded again.
+ */
+@Service
+public class ChunkCacheService {
+    private static final Logger log = LoggerFactory.getLogger(ChunkCacheService.class);
+
+    public static final String CONTENT_HASH = "CONTENT_HASH";
+
+    /**
+     * Metadata produced by the models for a chunk, neighbour summaries are re-linked on every ingest.
+     */
+    private static final List<String> ENRICHMENT_KEYS = List.of(EXCERPT_KEYWORDS, SECTION_SUMMARY);
+
+    /**
+     * The only metadata embedded with the text. Everything else, such as the document id, source, content hash or
+     * reader metadata, belongs to one document and would tie a cached embedding to it.
+     */
+    private static final Set<String> EMBEDDED_KEYS = Set.of(EXCERPT_KEYWORDS, SECTION_SUMMARY,
+            PREV_SECTION_SUMMARY, NEXT_SECTION_SUMMARY);
+
+    private static final String STORE = """
+            INSERT INTO public.chunk_cache (content_hash, embedding_hash, embedding_model, enrichment, embedding)
+            VALUES (?, ?, ?, ?::json, ?)
+            ON CONFLICT (embedding_hash) DO UPDATE
+                SET embedding_model = EXCLUDED.embedding_model,
+                    enrichment = EXCLUDED.enrichment,
+                    embedding = EXCLUDED.embedding,
+                    last_used = now()
+            """;
+
+    private static final TypeReference<Map<String, Object>> ENRICHMENT_TYPE = new TypeReference<>() {};
+
+    private final JdbcClient jdbcClient;
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonMapper jsonMapper;
+    private final VectorStoreService vectorStoreService;
+    private final String embeddingModel;
+
+    public ChunkCacheService(JdbcClient jdbcClient,
+                             JdbcTemplate jdbcTemplate,
+                             JsonMapper jsonMapper,
+                             VectorStoreService vectorStoreService,
+                             @Value("${spring.ai.ollama.embedding.model:mxbai-embed-large}") String embeddingModel) {
+        this.jdbcClient = jdbcClient;
+        this.jdbcTemplate = jdbcTemplate;
+        this.jsonMapper = jsonMapper;
+        this.vectorStoreService = vectorStoreService;
+        this.embeddingModel = embeddingModel;
+    }
+
+    /**
+     * Stamps the chunk with the hash of its text and returns it.
+     */
+    public String hash(Document chunk) {
+        String contentHash = sha256(Objects.requireNonNullElse(chunk.getText(), ""));
+
+        chunk.getMetadata().put(CONTENT_HASH, contentHash);
+
+        return contentHash;
+    }
+
+    /**
+     * Limits what the chunk embeds to its text and {@link #EMBEDDED_KEYS}, and returns the hash of that exact input.
+     */
+    static String embeddingHash(Document chunk) {
+        List<String> excludedKeys = chunk.getMetadata().keySet().stream()
+                .filter(key -> !EMBEDDED_KEYS.contains(key))
+                .toList();
+
+        chunk.setContentFormatter(DefaultContentFormatter.builder()
+                .withExcludedEmbedMetadataKeys(excludedKeys)
+                .build());
+
+        return sha256(chunk.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    /**
+     * Enrichment previously generated for identical text, if any. Text seen with different neighbours has a row per
+     * embed input, all with the same enrichment.
+     */
+    public Optional<Map<String, Object>> enrichment(Document chunk) {
+        return jdbcClient.sql("""
+                        SELECT enrichment::text
+                        FROM public.chunk_cache
+                        WHERE content_hash = :contentHash
+                          AND embedding_model = :embeddingModel
+                        ORDER BY last_used DESC
+                        LIMIT 1
+                        """)
+                .param("contentHash", contentHash(chunk))
+                .param("embeddingModel", embeddingModel)
+                .query(String.class)
+                .optional()
+                .map(enrichment -> jsonMapper.readValue(enrichment, ENRICHMENT_TYPE));
+    }
+
+    /**
+     * Embeds a batch of chunks, reusing cached embeddings and calling the embedding model only for the rest.
+     */
+    public List<EmbeddedDocument> embed(List<Document> chunks) {
+        Map<Document, String> embeddingHashes = new IdentityHashMap<>();
+        chunks.forEach(chunk -> embeddingHashes.put(chunk, embeddingHash(chunk)));
+
+        Map<String, float[]> cached = embeddings(List.copyOf(new HashSet<>(embeddingHashes.values())));
+
+        List<Document> misses = chunks.stream()
+                .filter(chunk -> !cached.containsKey(embeddingHashes.get(chunk)))
+                .toList();
+
+        log.debug("Embedding {} of {} chunks, {} cached", misses.size(), chunks.size(), chunks.size() - misses.size());
+
+        Map<String, float[]> embedded = new HashMap<>(cached);
+
+        if (!misses.isEmpty()) {
+            List<EmbeddedDocument> embeddedMisses = vectorStoreService.embed(misses);
+            store(embeddedMisses, embeddingHashes);
+            embeddedMisses.forEach(embeddedDocument ->
+                    embedded.put(embeddingHashes.get(embeddedDocument.document()), embeddedDocument.embedding()));
+        }
+
+        if (!cached.isEmpty()) {
+            touch(cached.keySet());
+        }
+
+        return chunks.stream()
+                .map(chunk -> new EmbeddedDocument(chunk, embedded.get(embeddingHashes.get(chunk))))
+                .toList();
+    }
+
+    private Map<String, float[]> embeddings(List<String> embeddingHashes) {
+        Map<String, float[]> embeddings = new HashMap<>();
+
+        jdbcClient.sql("""
+                        SELECT embedding_hash, embedding::text
+                        FROM public.chunk_cache
+                        WHERE embedding_hash IN (:embeddingHashes)
+                          AND embedding_model = :embeddingModel
+                        """)
+                .param("embeddingHashes", embeddingHashes)
+                .param("embeddingModel", embeddingModel)
+                .query(resultSet -> {
+                    embeddings.put(resultSet.getString(1), toArray(resultSet.getString(2)));
+                });
+
+        return embeddings;
+    }
+
+    /**
+     * Writes the batch as one batched statement, like the vector store insert it feeds.
+     */
+    private void store(List<EmbeddedDocument> embeddedDocuments, Map<Document, String> embeddingHashes) {
+        jdbcTemplate.batchUpdate(STORE, embeddedDocuments, embeddedDocuments.size(),
+                (preparedStatement, embeddedDocument) -> {
+                    Document document = embeddedDocument.document();
+                    Map<String, Object> metadata = document.getMetadata();
+
+                    Map<String, Object> enrichment = new HashMap<>();
+                    ENRICHMENT_KEYS.stream()
+                            .filter(metadata::containsKey)
+                            .forEach(key -> enrichment.put(key, metadata.get(key)));
+
+                    preparedStatement.setString(1, contentHash(document));
+                    preparedStatement.setString(2, embeddingHashes.get(document));
+                    preparedStatement.setString(3, embeddingModel);
+                    preparedStatement.setString(4, jsonMapper.writeValueAsString(enrichment));
+                    preparedStatement.setObject(5, new PGvector(embeddedDocument.embedding()));
+                });
+    }
+
+    private void touch(Collection<String> embeddingHashes) {
+        jdbcClient.sql("UPDATE public.chunk_cache SET last_used = now() WHERE embedding_hash IN (:embeddingHashes)")
+                .param("embeddingHashes", embeddingHashes)
+                .update();
+    }
+
+    private static String contentHash(Document chunk) {
+        return (String) chunk.getMetadata().get(CONTENT_HASH);
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static float[] toArray(String embedding) {
+        try {
+            return new PGvector(embedding).toArray();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
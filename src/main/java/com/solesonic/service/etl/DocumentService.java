@@ -1,9 +1,8 @@
 package com.solesonic.service.etl;
 
-import com.solesonic.model.training.DocumentStatus;
 import com.solesonic.model.training.TrainingDocument;
+import com.solesonic.service.rag.TrainingDocumentContentStore;
 import com.solesonic.service.rag.TrainingDocumentService;
-import com.solesonic.service.rag.VectorStoreService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
@@ -12,13 +11,12 @@ import org.springframework.ai.reader.TextReader;
 import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
 import org.springframework.ai.reader.pdf.config.PdfDocumentReaderConfig;
 import org.springframework.ai.reader.tika.TikaDocumentReader;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 import static org.springframework.http.MediaType.*;
@@ -27,58 +25,53 @@ import static org.springframework.http.MediaType.*;
 public class DocumentService {
     private static final Logger log = LoggerFactory.getLogger(DocumentService.class);
     public static final String TRAINING_DOCUMENT_ID = "TRAINING_DOCUMENT_ID";
-    private final VectorStoreService vectorStoreService;
+    public static final String DOCUMENT_SOURCE = "DOCUMENT_SOURCE";
     private final EtlService etlService;
     private final TrainingDocumentService trainingDocumentService;
+    private final TrainingDocumentContentStore trainingDocumentContentStore;
 
-    public DocumentService(VectorStoreService vectorStoreService,
-                           EtlService etlService, TrainingDocumentService trainingDocumentService) {
-        this.vectorStoreService = vectorStoreService;
+    public DocumentService(EtlService etlService,
+                           TrainingDocumentService trainingDocumentService,
+                           TrainingDocumentContentStore trainingDocumentContentStore) {
         this.etlService = etlService;
         this.trainingDocumentService = trainingDocumentService;
+        this.trainingDocumentContentStore = trainingDocumentContentStore;
     }
 
-
-
-
-
     /**
      * Stores the given resource to the vector store
+     *
+     * @param beforeWrite runs inside every vector write transaction, throwing aborts the document
+     * @see TrainingJobService#complete
      */
-    public void resourceToVectorStore(UUID trainingDocumentId) {
+    public void resourceToVectorStore(UUID trainingDocumentId, Runnable beforeWrite) {
         log.info("Saving resource to the vector store.");
 
         TrainingDocument trainingDocument = trainingDocumentService.get(trainingDocumentId);
         String contentType = trainingDocument.getContentType();
 
-        byte[] fileContent = trainingDocument.getFileData();
-
-        ByteArrayResource resource = new ByteArrayResource(fileContent) {
-            @Override
-            public String getFilename() {
-                return trainingDocument.getFileName();
-            }
-        };
-
-        assert contentType != null;
-
-        List<Document> documents = switch (contentType) {
-            case APPLICATION_PDF_VALUE -> fromPdf(resource);
-            case TEXT_PLAIN_VALUE -> fromPlain(resource);
-            case TEXT_HTML_VALUE -> fromHtml(resource);
-            default -> fromText(resource);
-        };
-
-        documents = etlService.prepare(documents, trainingDocument);
-
-        for(Document document : documents) {
-            Map<String, Object> metadata = document.getMetadata();
-            metadata.put(TRAINING_DOCUMENT_ID, trainingDocument.getId());
-            vectorStoreService.save(List.of(document));
+        //readers work from a temporary file so the document is never loaded into heap as a whole
+        Path content = trainingDocumentContentStore.copyToTempFile(trainingDocument.getFileOid());
+
+        try {
+            FileSystemResource resource = new FileSystemResource(content) {
+                @Override
+                public String getFilename() {
+                    return trainingDocument.getFileName();
+                }
+            };
+
+            assert contentType != null;
+
+            etlService.process(trainingDocument, () -> switch (contentType) {
+                case APPLICATION_PDF_VALUE -> fromPdf(resource);
+                case TEXT_PLAIN_VALUE -> fromPlain(resource);
+                case TEXT_HTML_VALUE -> fromHtml(resource);
+                default -> fromText(resource);
+            }, beforeWrite);
+        } finally {
+            TrainingDocumentContentStore.deleteQuietly(content);
         }
-
-        trainingDocumentService.update(trainingDocument, DocumentStatus.COMPLETED);
-
     }
 
     public List<Document> fromHtml(Resource textResource) {
@@ -110,10 +103,6 @@ public class DocumentService {
 
         var pdfReader = new PagePdfDocumentReader(pdfResource, config);
 
-        var textSplitter = TokenTextSplitter.builder().build();
-
-        List<Document> documents = pdfReader.get();
-
-        return textSplitter.apply(documents);
+        return pdfReader.get();
     }
 }
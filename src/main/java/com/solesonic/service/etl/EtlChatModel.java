@@ -0,0 +1,51 @@
+package com.solesonic.service.etl;
+
+import com.solesonic.config.etl.EtlEnrichmentProperties;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+import org.springframework.ai.ollama.management.ModelManagementOptions;
+import org.springframework.ai.ollama.management.PullModelStrategy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chat model used by the enrichers. Not exposed as a {@link ChatModel} bean so it never competes with the
+ * auto-configured chat model for injection.
+ */
+@Component
+public class EtlChatModel {
+    private static final Logger log = LoggerFactory.getLogger(EtlChatModel.class);
+
+    private final ChatModel chatModel;
+
+    public EtlChatModel(OllamaChatModel defaultChatModel,
+                        OllamaApi ollamaApi,
+                        EtlEnrichmentProperties etlEnrichmentProperties) {
+        String model = etlEnrichmentProperties.getModel();
+
+        if (StringUtils.isBlank(model)) {
+            this.chatModel = defaultChatModel;
+            return;
+        }
+
+        log.info("Enriching training documents with model: {}", model);
+
+        this.chatModel = OllamaChatModel.builder()
+                .ollamaApi(ollamaApi)
+                .defaultOptions(OllamaChatOptions.builder()
+                        .model(model)
+                        .build())
+                .modelManagementOptions(ModelManagementOptions.builder()
+                        .pullModelStrategy(PullModelStrategy.WHEN_MISSING)
+                        .build())
+                .build();
+    }
+
+    public ChatModel get() {
+        return chatModel;
+    }
+}
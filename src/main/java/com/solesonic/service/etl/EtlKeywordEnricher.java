@@ -2,21 +2,22 @@ package com.solesonic.service.etl;
 
 import org.springframework.ai.document.Document;
 import org.springframework.ai.model.transformer.KeywordMetadataEnricher;
-import org.springframework.ai.ollama.OllamaChatModel;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 
 @Component
 public class EtlKeywordEnricher {
-    private final OllamaChatModel chatModel;
+    public static final String EXCERPT_KEYWORDS = "excerpt_keywords";
 
-    public EtlKeywordEnricher(OllamaChatModel chatModel) {
-        this.chatModel = chatModel;
+    private final EtlChatModel etlChatModel;
+
+    public EtlKeywordEnricher(EtlChatModel etlChatModel) {
+        this.etlChatModel = etlChatModel;
     }
 
-    public List<Document> enrich(List<Document> documents) {
-        KeywordMetadataEnricher enricher = new KeywordMetadataEnricher(chatModel, 5);
-        return enricher.apply(documents);
+    public Document enrich(Document document) {
+        KeywordMetadataEnricher enricher = new KeywordMetadataEnricher(etlChatModel.get(), 5);
+        return enricher.apply(List.of(document)).getFirst();
     }
-}
\ No newline at end of file
+}
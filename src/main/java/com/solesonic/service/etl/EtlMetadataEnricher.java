@@ -2,24 +2,42 @@ package com.solesonic.service.etl;
 
 import org.springframework.ai.document.Document;
 import org.springframework.ai.model.transformer.SummaryMetadataEnricher;
-import org.springframework.ai.ollama.OllamaChatModel;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
 
 @Component
 public class EtlMetadataEnricher {
-    private final OllamaChatModel chatModel;
+    public static final String SECTION_SUMMARY = "section_summary";
+    public static final String PREV_SECTION_SUMMARY = "prev_section_summary";
+    public static final String NEXT_SECTION_SUMMARY = "next_section_summary";
 
-    public EtlMetadataEnricher(OllamaChatModel chatModel) {
-        this.chatModel = chatModel;
+    private final EtlChatModel etlChatModel;
+
+    public EtlMetadataEnricher(EtlChatModel etlChatModel) {
+        this.etlChatModel = etlChatModel;
+    }
+
+    /**
+     * Summarizes a single chunk, neighbouring summaries are attached afterwards by {@link #link(Document, Document)}
+     * so chunks can be enriched independently.
+     */
+    public Document enrich(Document document) {
+        SummaryMetadataEnricher summaryMetadataEnricher = new SummaryMetadataEnricher(etlChatModel.get(),
+            List.of(SummaryMetadataEnricher.SummaryType.CURRENT));
+        return summaryMetadataEnricher.apply(List.of(document)).getFirst();
     }
 
-    public List<Document> enrich(List<Document> documents) {
-        SummaryMetadataEnricher summaryMetadataEnricher = new SummaryMetadataEnricher(chatModel,
-            List.of(SummaryMetadataEnricher.SummaryType.PREVIOUS, 
-                   SummaryMetadataEnricher.SummaryType.CURRENT, 
-                   SummaryMetadataEnricher.SummaryType.NEXT));
-        return summaryMetadataEnricher.apply(documents);
+    public void link(Document previous, Document next) {
+        Object previousSummary = previous.getMetadata().get(SECTION_SUMMARY);
+        Object nextSummary = next.getMetadata().get(SECTION_SUMMARY);
+
+        if (nextSummary != null) {
+            previous.getMetadata().put(NEXT_SECTION_SUMMARY, nextSummary);
+        }
+
+        if (previousSummary != null) {
+            next.getMetadata().put(PREV_SECTION_SUMMARY, previousSummary);
+        }
     }
-}
\ No newline at end of file
+}
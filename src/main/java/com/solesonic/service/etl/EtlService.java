@@ -1,48 +1,188 @@
 package com.solesonic.service.etl;
 
+import com.solesonic.config.etl.EtlEnrichmentProperties;
+import com.solesonic.config.etl.EtlPipelineProperties;
 import com.solesonic.model.training.DocumentStatus;
+import com.solesonic.model.training.EmbeddedDocument;
 import com.solesonic.model.training.TrainingDocument;
 import com.solesonic.service.rag.TrainingDocumentService;
+import com.solesonic.service.rag.VectorStoreService;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import static com.solesonic.service.etl.DocumentService.DOCUMENT_SOURCE;
+import static com.solesonic.service.etl.DocumentService.TRAINING_DOCUMENT_ID;
+import static com.solesonic.service.etl.EtlKeywordEnricher.EXCERPT_KEYWORDS;
+import static com.solesonic.service.etl.EtlMetadataEnricher.SECTION_SUMMARY;
+
+/**
+ * Staged ETL: read → split → enrich → embed → write. Stages are connected by bounded buffers so chunks flow
+ * downstream as soon as they are produced, and each stage runs on its own scheduler shared by every document
+ * being trained on this node, so parsing, model calls and database writes of different documents overlap.
+ * Chunks whose text was ingested before skip the models, see {@link ChunkCacheService}.
+ */
 @Service
 public class EtlService {
     private static final Logger log = LoggerFactory.getLogger(EtlService.class);
     private final TrainingDocumentService trainingDocumentService;
+    private final VectorStoreService vectorStoreService;
     private final EtlKeywordEnricher etlKeywordEnricher;
     private final EtlMetadataEnricher etlMetadataEnricher;
     private final EtlTextSplitter etlTextSplitter;
+    private final ChunkCacheService chunkCacheService;
+    private final EtlThrottle etlThrottle;
+    private final EtlPipelineProperties etlPipelineProperties;
+    private final EtlEnrichmentProperties etlEnrichmentProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Scheduler readScheduler;
+    private final Scheduler enrichScheduler;
+    private final Scheduler embedScheduler;
+    private final Scheduler writeScheduler;
 
     public EtlService(TrainingDocumentService trainingDocumentService,
+                      VectorStoreService vectorStoreService,
                       EtlKeywordEnricher etlKeywordEnricher,
                       EtlMetadataEnricher etlMetadataEnricher,
-                      EtlTextSplitter etlTextSplitter) {
+                      EtlTextSplitter etlTextSplitter,
+                      ChunkCacheService chunkCacheService,
+                      EtlThrottle etlThrottle,
+                      EtlPipelineProperties etlPipelineProperties,
+                      EtlEnrichmentProperties etlEnrichmentProperties,
+                      TransactionTemplate transactionTemplate) {
         this.trainingDocumentService = trainingDocumentService;
+        this.vectorStoreService = vectorStoreService;
         this.etlKeywordEnricher = etlKeywordEnricher;
         this.etlMetadataEnricher = etlMetadataEnricher;
         this.etlTextSplitter = etlTextSplitter;
+        this.chunkCacheService = chunkCacheService;
+        this.etlThrottle = etlThrottle;
+        this.etlPipelineProperties = etlPipelineProperties;
+        this.etlEnrichmentProperties = etlEnrichmentProperties;
+        this.transactionTemplate = transactionTemplate;
+
+        this.readScheduler = stageScheduler("etl-read", etlPipelineProperties.getReadParallelism());
+        this.enrichScheduler = stageScheduler("etl-enrich", etlPipelineProperties.getEnrichParallelism());
+        this.embedScheduler = stageScheduler("etl-embed", etlPipelineProperties.getEmbedParallelism());
+        this.writeScheduler = stageScheduler("etl-write", etlPipelineProperties.getWriteParallelism());
     }
 
-    public List<Document> prepare(List<Document> documents, TrainingDocument trainingDocument) {
+    /**
+     * Runs a document through every stage and blocks until its last chunk is written.
+     *
+     * @param beforeWrite runs in the transaction of every write batch, throwing aborts the document
+     * @return the number of chunks written to the vector store
+     */
+    public long process(TrainingDocument trainingDocument, Supplier<List<Document>> reader, Runnable beforeWrite) {
         log.info("Preparing documents");
         trainingDocumentService.update(trainingDocument, DocumentStatus.PREPARING);
 
-        log.info("Keyword enriching documents");
-        trainingDocumentService.update(trainingDocument, DocumentStatus.KEYWORD_ENRICHING);
-        List<Document> keywordEnriched = etlKeywordEnricher.enrich(documents);
+        int queueCapacity = etlPipelineProperties.getQueueCapacity();
+        boolean summarize = !etlEnrichmentProperties.getSummaryDisabledSources().contains(trainingDocument.getDocumentSource());
+
+        Long written = Flux.defer(() -> Flux.fromIterable(reader.get()))
+                .subscribeOn(readScheduler)
+                .concatMapIterable(page -> etlTextSplitter.split(List.of(page)), queueCapacity)
+                .doOnNext(chunkCacheService::hash)
+                .flatMapSequential(chunk -> Mono.fromCallable(() -> enrich(chunk, summarize)).subscribeOn(enrichScheduler),
+                        etlPipelineProperties.getEnrichParallelism(), queueCapacity)
+                .buffer(2, 1)
+                .map(this::linkNeighbours)
+                .doOnNext(chunk -> stamp(chunk, trainingDocument))
+                .buffer(etlPipelineProperties.getEmbedBatchSize())
+                .flatMap(batch -> Mono.fromCallable(() -> embed(batch)).subscribeOn(embedScheduler),
+                        etlPipelineProperties.getEmbedParallelism(), 1)
+                .flatMapIterable(Function.identity())
+                .buffer(etlPipelineProperties.getWriteBatchSize())
+                .flatMap(batch -> Mono.fromCallable(() -> write(batch, beforeWrite)).subscribeOn(writeScheduler),
+                        etlPipelineProperties.getWriteParallelism(), 1)
+                .reduce(0L, (total, inserted) -> total + inserted)
+                .block();
+
+        log.info("Wrote {} chunks for training document: {}", written, trainingDocument.getId());
+
+        return Objects.requireNonNullElse(written, 0L);
+    }
+
+    /**
+     * Fills in whatever enrichment the cache does not already have for this text.
+     */
+    private Document enrich(Document chunk, boolean summarize) throws InterruptedException {
+        Map<String, Object> cached = chunkCacheService.enrichment(chunk).orElse(Map.of());
+        chunk.getMetadata().putAll(cached);
+
+        if (!cached.containsKey(EXCERPT_KEYWORDS)) {
+            etlThrottle.awaitCapacity();
+            chunk = etlKeywordEnricher.enrich(chunk);
+        }
+
+        if (summarize && !cached.containsKey(SECTION_SUMMARY)) {
+            etlThrottle.awaitCapacity();
+            chunk = etlMetadataEnricher.enrich(chunk);
+        }
+
+        return chunk;
+    }
 
-        log.info("Metadata enriched documents");
-        trainingDocumentService.update(trainingDocument, DocumentStatus.METADATA_ENRICHING);
-        List<Document> metadataEnriched = etlMetadataEnricher.enrich(keywordEnriched);
+    /**
+     * Keys backing the indexed {@code training_document_id} and {@code document_source} columns of the vector store.
+     */
+    private static void stamp(Document chunk, TrainingDocument trainingDocument) {
+        chunk.getMetadata().put(TRAINING_DOCUMENT_ID, trainingDocument.getId());
 
-        log.info("Token splitting documents");
-        trainingDocumentService.update(trainingDocument, DocumentStatus.TOKEN_SPLITTING);
+        if (trainingDocument.getDocumentSource() != null) {
+            chunk.getMetadata().put(DOCUMENT_SOURCE, trainingDocument.getDocumentSource().name());
+        }
+    }
+
+    private List<EmbeddedDocument> embed(List<Document> batch) throws InterruptedException {
+        etlThrottle.awaitCapacity();
+        return chunkCacheService.embed(batch);
+    }
+
+    private int write(List<EmbeddedDocument> batch, Runnable beforeWrite) {
+        return Objects.requireNonNull(transactionTemplate.execute(_ -> {
+            beforeWrite.run();
+            return vectorStoreService.insert(batch);
+        }));
+    }
+
+    /**
+     * Chunks arrive as overlapping pairs, the head of each pair is complete once it knows its successor.
+     */
+    private Document linkNeighbours(List<Document> pair) {
+        Document head = pair.getFirst();
+
+        if (pair.size() > 1) {
+            etlMetadataEnricher.link(head, pair.get(1));
+        }
+
+        return head;
+    }
+
+    private static Scheduler stageScheduler(String name, int parallelism) {
+        return Schedulers.newBoundedElastic(parallelism, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, name);
+    }
 
-        return etlTextSplitter.split(metadataEnriched);
+    @PreDestroy
+    public void shutdown() {
+        readScheduler.dispose();
+        enrichScheduler.dispose();
+        embedScheduler.dispose();
+        writeScheduler.dispose();
     }
 }
@@ -0,0 +1,124 @@
+package com.solesonic.service.etl;
+
+import com.solesonic.config.etl.EtlThrottleProperties;
+import com.solesonic.service.chat.ChatLoadMonitor;
+import com.solesonic.service.redis.ActiveStreamTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Yields the shared Ollama instance to interactive chat. Background ETL runs at full speed when chat is quiet, drops
+ * to fewer workers under moderate load and stops calling the models under heavy load, resuming by itself once the
+ * load falls again. Jobs held back stay queued in the database.
+ */
+@Service
+public class EtlThrottle {
+    private static final Logger log = LoggerFactory.getLogger(EtlThrottle.class);
+
+    private static final Duration ACTIVE_STREAMS_TIMEOUT = Duration.ofSeconds(2);
+    private static final long PAUSE_RECHECK_MS = 1000;
+
+    public enum Mode {
+        NORMAL,
+        SLOWED,
+        PAUSED
+    }
+
+    private final ActiveStreamTracker activeStreamTracker;
+    private final ChatLoadMonitor chatLoadMonitor;
+    private final EtlThrottleProperties etlThrottleProperties;
+
+    private final Object gate = new Object();
+    private volatile Mode mode = Mode.NORMAL;
+
+    public EtlThrottle(ActiveStreamTracker activeStreamTracker,
+                       ChatLoadMonitor chatLoadMonitor,
+                       EtlThrottleProperties etlThrottleProperties) {
+        this.activeStreamTracker = activeStreamTracker;
+        this.chatLoadMonitor = chatLoadMonitor;
+        this.etlThrottleProperties = etlThrottleProperties;
+    }
+
+    /**
+     * Re-evaluates interactive load and moves between modes.
+     */
+    public void sample() {
+        if (!etlThrottleProperties.isEnabled()) {
+            update(Mode.NORMAL);
+            return;
+        }
+
+        long activeStreams = Math.max(activeStreams(), chatLoadMonitor.inFlight());
+        long timeToFirstTokenMs = chatLoadMonitor.timeToFirstTokenMs(etlThrottleProperties.getTimeToFirstTokenWindowMs());
+
+        Mode next;
+
+        if (activeStreams >= etlThrottleProperties.getPauseActiveStreams()
+                || timeToFirstTokenMs >= etlThrottleProperties.getPauseTimeToFirstTokenMs()) {
+            next = Mode.PAUSED;
+        } else if (activeStreams >= etlThrottleProperties.getSlowActiveStreams()
+                || timeToFirstTokenMs >= etlThrottleProperties.getSlowTimeToFirstTokenMs()) {
+            next = Mode.SLOWED;
+        } else {
+            next = Mode.NORMAL;
+        }
+
+        if (next != mode) {
+            log.info("ETL throttle {} -> {} (active streams: {}, time to first token: {}ms)",
+                    mode, next, activeStreams, timeToFirstTokenMs);
+        }
+
+        update(next);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Workers allowed to hold a job right now out of the node's configured {@code workers}.
+     */
+    public int allowedWorkers(int workers) {
+        return switch (mode) {
+            case NORMAL -> workers;
+            case SLOWED -> Math.min(workers, etlThrottleProperties.getSlowedWorkers());
+            case PAUSED -> 0;
+        };
+    }
+
+    /**
+     * Blocks a model call while the throttle is paused.
+     */
+    public void awaitCapacity() throws InterruptedException {
+        synchronized (gate) {
+            while (mode == Mode.PAUSED) {
+                gate.wait(PAUSE_RECHECK_MS);
+            }
+        }
+    }
+
+    private void update(Mode next) {
+        synchronized (gate) {
+            mode = next;
+
+            if (next != Mode.PAUSED) {
+                gate.notifyAll();
+            }
+        }
+    }
+
+    private long activeStreams() {
+        try {
+            return activeStreamTracker.count()
+                    .blockOptional(ACTIVE_STREAMS_TIMEOUT)
+                    .orElse(0L);
+        } catch (RuntimeException e) {
+            //fall back to this node's view rather than stalling training on a redis hiccup
+            log.warn("Unable to count active chat streams", e);
+            return 0;
+        }
+    }
+}
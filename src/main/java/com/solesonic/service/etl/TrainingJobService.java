@@ -0,0 +1,234 @@
+package com.solesonic.service.etl;
+
+import com.solesonic.exception.training.TrainingLeaseLostException;
+import com.solesonic.model.training.DocumentStatus;
+import com.solesonic.model.training.TrainingJob;
+import com.solesonic.model.training.TrainingJobStatus;
+import com.solesonic.repository.ollama.TrainingJobRepository;
+import com.solesonic.service.rag.RetrievalCache;
+import com.solesonic.service.rag.TrainingDocumentService;
+import com.solesonic.service.rag.VectorStoreService;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Durable ETL queue. Jobs are claimed with {@code FOR UPDATE SKIP LOCKED} so any number of workers on any
+ * number of nodes can poll concurrently without handing the same document to two of them.
+ */
+@Service
+public class TrainingJobService {
+    private static final Logger log = LoggerFactory.getLogger(TrainingJobService.class);
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final TrainingJobRepository trainingJobRepository;
+    private final TrainingDocumentService trainingDocumentService;
+    private final DocumentService documentService;
+    private final VectorStoreService vectorStoreService;
+    private final RetrievalCache retrievalCache;
+    private final TransactionTemplate transactionTemplate;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+    private final long retryBaseDelaySeconds;
+
+    public TrainingJobService(TrainingJobRepository trainingJobRepository,
+                              TrainingDocumentService trainingDocumentService,
+                              DocumentService documentService,
+                              VectorStoreService vectorStoreService,
+                              RetrievalCache retrievalCache,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${training.jobs.lease-seconds:120}") long leaseSeconds,
+                              @Value("${training.jobs.max-attempts:3}") int maxAttempts,
+                              @Value("${training.jobs.retry-base-delay-seconds:30}") long retryBaseDelaySeconds) {
+        this.trainingJobRepository = trainingJobRepository;
+        this.trainingDocumentService = trainingDocumentService;
+        this.documentService = documentService;
+        this.vectorStoreService = vectorStoreService;
+        this.retrievalCache = retrievalCache;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseDelaySeconds = retryBaseDelaySeconds;
+    }
+
+    /**
+     * Claims the oldest runnable job for the given owner, the row lock is held only until the claim commits.
+     */
+    @Transactional
+    public Optional<TrainingJob> claim(String leaseOwner) {
+        return trainingJobRepository.findClaimable()
+                .flatMap(trainingJobRepository::findById)
+                .map(trainingJob -> {
+                    ZonedDateTime now = ZonedDateTime.now();
+
+                    trainingJob.setStatus(TrainingJobStatus.RUNNING);
+                    trainingJob.setLeaseOwner(leaseOwner);
+                    trainingJob.setLeaseExpiresAt(now.plusSeconds(leaseSeconds));
+                    trainingJob.setAttempts(trainingJob.getAttempts() + 1);
+                    trainingJob.setUpdated(now);
+
+                    log.debug("Claimed training job: {} for document: {}, attempt: {}",
+                            trainingJob.getId(), trainingJob.getTrainingDocumentId(), trainingJob.getAttempts());
+
+                    return trainingJobRepository.save(trainingJob);
+                });
+    }
+
+    /**
+     * Runs the ETL for a claimed job and records the outcome.
+     */
+    public void process(TrainingJob trainingJob) {
+        UUID trainingDocumentId = trainingJob.getTrainingDocumentId();
+
+        try {
+            //A previous attempt, or a failed job the document was re-queued after, may have written part of it
+            vectorStoreService.deleteByTrainingDocumentId(trainingDocumentId);
+
+            trainingDocumentService.status(trainingDocumentId, DocumentStatus.IN_PROGRESS);
+            documentService.resourceToVectorStore(trainingDocumentId, () -> holdLease(trainingJob));
+
+            complete(trainingJob.getId(), trainingJob.getLeaseOwner());
+        } catch (TrainingLeaseLostException e) {
+            log.warn("Stopped training document: {}, {}", trainingDocumentId, e.getMessage());
+        } catch (Exception e) {
+            log.error("Training job: {} for document: {} failed", trainingJob.getId(), trainingDocumentId, e);
+            fail(trainingJob.getId(), trainingJob.getLeaseOwner(), e.getMessage());
+        }
+    }
+
+    /**
+     * Called inside each vector write transaction. Holds the job's lease until the write commits, or stops the
+     * document when another worker has taken the job over.
+     */
+    public void holdLease(TrainingJob trainingJob) {
+        if (trainingJobRepository.lockLease(trainingJob.getId(), trainingJob.getLeaseOwner()).isEmpty()) {
+            throw new TrainingLeaseLostException(trainingJob.getId(), trainingJob.getLeaseOwner());
+        }
+    }
+
+    /**
+     * Marks the job and its document completed in one transaction, so a document never shows COMPLETED while its job
+     * was lost or requeued. Called from {@link #process} on this bean, so the transaction is opened here rather than
+     * through the proxy.
+     */
+    public void complete(UUID trainingJobId, String leaseOwner) {
+        transactionTemplate.executeWithoutResult(_ -> trainingJobRepository.findById(trainingJobId)
+                .filter(trainingJob -> isLeasedBy(trainingJob, leaseOwner))
+                .ifPresent(trainingJob -> {
+                    trainingJob.setStatus(TrainingJobStatus.COMPLETED);
+                    trainingJob.setLeaseOwner(null);
+                    trainingJob.setLeaseExpiresAt(null);
+                    trainingJob.setUpdated(ZonedDateTime.now());
+
+                    trainingJobRepository.save(trainingJob);
+                    trainingDocumentService.status(trainingJob.getTrainingDocumentId(), DocumentStatus.COMPLETED);
+
+                    //one invalidation per document rather than one per write batch
+                    retrievalCache.invalidate();
+                }));
+    }
+
+    /**
+     * Records a failed attempt and the document status in one transaction, see {@link #complete}.
+     */
+    public void fail(UUID trainingJobId, String leaseOwner, String error) {
+        transactionTemplate.executeWithoutResult(_ -> trainingJobRepository.findById(trainingJobId)
+                .filter(trainingJob -> isLeasedBy(trainingJob, leaseOwner))
+                .ifPresent(trainingJob -> retryOrFail(trainingJob, error)));
+    }
+
+    /**
+     * Cancels the active job of a document that was removed or replaced, joining the caller's transaction so the job
+     * stops together with the document.
+     */
+    @Transactional
+    public void cancel(UUID trainingDocumentId) {
+        if (trainingJobRepository.cancelActive(trainingDocumentId) > 0) {
+            log.info("Cancelled training job for document: {}", trainingDocumentId);
+        }
+    }
+
+    /**
+     * Pushes out the lease of every job this owner is still working on.
+     */
+    @Transactional
+    public void heartbeat(String leaseOwner, Collection<UUID> trainingJobIds) {
+        if (trainingJobIds.isEmpty()) {
+            return;
+        }
+
+        int extended = trainingJobRepository.extendLeases(trainingJobIds, leaseOwner, leaseSeconds);
+
+        if (extended < trainingJobIds.size()) {
+            log.warn("Only extended {} of {} training job leases for: {}", extended, trainingJobIds.size(), leaseOwner);
+        }
+    }
+
+    /**
+     * Requeues jobs whose worker stopped heart-beating, typically because its node crashed or was killed.
+     */
+    @Transactional
+    public void reapExpiredLeases() {
+        List<UUID> expired = trainingJobRepository.findExpiredLeases();
+
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        log.warn("Reaping {} training jobs with expired leases", expired.size());
+
+        for (TrainingJob trainingJob : trainingJobRepository.findAllById(expired)) {
+            retryOrFail(trainingJob, "Lease held by " + trainingJob.getLeaseOwner() + " expired");
+        }
+    }
+
+    private void retryOrFail(TrainingJob trainingJob, String error) {
+        ZonedDateTime now = ZonedDateTime.now();
+
+        trainingJob.setLeaseOwner(null);
+        trainingJob.setLeaseExpiresAt(null);
+        trainingJob.setLastError(StringUtils.abbreviate(error, MAX_ERROR_LENGTH));
+        trainingJob.setUpdated(now);
+
+        if (trainingJob.getAttempts() >= maxAttempts) {
+            log.warn("Training job: {} failed after {} attempts", trainingJob.getId(), trainingJob.getAttempts());
+
+            trainingJob.setStatus(TrainingJobStatus.FAILED);
+            trainingDocumentService.status(trainingJob.getTrainingDocumentId(), DocumentStatus.FAILED);
+
+            //a failed document must not stay half searchable
+            vectorStoreService.deleteByTrainingDocumentId(trainingJob.getTrainingDocumentId());
+        } else {
+            long delaySeconds = retryBaseDelaySeconds << (trainingJob.getAttempts() - 1);
+            log.info("Retrying training job: {} in {}s", trainingJob.getId(), delaySeconds);
+
+            trainingJob.setStatus(TrainingJobStatus.QUEUED);
+            trainingJob.setAvailableAt(now.plusSeconds(delaySeconds));
+            trainingDocumentService.status(trainingJob.getTrainingDocumentId(), DocumentStatus.QUEUED);
+        }
+
+        trainingJobRepository.save(trainingJob);
+    }
+
+    private static boolean isLeasedBy(TrainingJob trainingJob, String leaseOwner) {
+        boolean leased = trainingJob.getStatus() == TrainingJobStatus.RUNNING
+                && leaseOwner.equals(trainingJob.getLeaseOwner());
+
+        if (!leased) {
+            log.warn("Training job: {} is no longer leased by: {}, ignoring outcome", trainingJob.getId(), leaseOwner);
+        }
+
+        return leased;
+    }
+}
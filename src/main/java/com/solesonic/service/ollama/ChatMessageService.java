@@ -2,8 +2,8 @@ package com.solesonic.service.ollama;
 
 import com.solesonic.model.chat.history.ChatMessage;
 import com.solesonic.model.user.UserPreferences;
-import com.solesonic.repository.UserPreferencesRepository;
 import com.solesonic.repository.ollama.ChatMessageRepository;
+import com.solesonic.service.user.UserPreferencesService;
 import org.apache.commons.collections4.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,12 +23,12 @@ import java.util.UUID;
 public class ChatMessageService {
     private static final Logger log =  LoggerFactory.getLogger(ChatMessageService.class);
     private final ChatMessageRepository chatMessageRepository;
-    private final UserPreferencesRepository userPreferencesRepository;
+    private final UserPreferencesService userPreferencesService;
 
     public ChatMessageService(ChatMessageRepository chatMessageRepository,
-                              UserPreferencesRepository userPreferencesRepository) {
+                              UserPreferencesService userPreferencesService) {
         this.chatMessageRepository = chatMessageRepository;
-        this.userPreferencesRepository = userPreferencesRepository;
+        this.userPreferencesService = userPreferencesService;
     }
 
     public void save(ChatMessage message) {
@@ -36,9 +36,7 @@ public class ChatMessageService {
 
         log.debug("Saving chat message with id {}", chatId);
 
-        UserPreferences userPreferences = userPreferencesRepository
-                .findByChatId(chatId)
-                .orElseThrow(() -> new IllegalStateException("User preferences not found for chatId: " + chatId));
+        UserPreferences userPreferences = userPreferencesService.getByChatId(chatId);
 
         String chatModel = userPreferences.getModel();
         message.setModel(chatModel);
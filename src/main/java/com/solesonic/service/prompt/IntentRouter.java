@@ -0,0 +1,256 @@
+package com.solesonic.service.prompt;
+
+import com.solesonic.config.olllama.IntentRouterProperties;
+import com.solesonic.model.prompt.SlashCommand;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+import org.springframework.ai.ollama.management.ModelManagementOptions;
+import org.springframework.ai.ollama.management.PullModelStrategy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.solesonic.model.prompt.SlashCommand.PROMPT;
+import static com.solesonic.model.prompt.SlashCommand.TOOL;
+import static com.solesonic.service.rag.VectorStoreService.RETRIEVAL_TIMER;
+
+/**
+ * Decides before generation whether a chat turn needs retrieval and which prompt answers it. Cheap heuristics settle
+ * the obvious turns, the rest go to a tiny model. Anything undecided keeps retrieval and the requested prompt, so a
+ * slow or failing model costs an unneeded search, never a missing one.
+ */
+@Service
+public class IntentRouter {
+    private static final Logger log = LoggerFactory.getLogger(IntentRouter.class);
+
+    public static final String ROUTES = "chat.intent.routes";
+    public static final String CLASSIFICATION = "chat.intent.classification";
+    public static final String RETRIEVAL_SAVED = "chat.intent.retrieval.saved";
+
+    //Greetings, thanks and acknowledgements, matched against the whole message. Only fillers may follow them, and
+    //words that can answer a question from the assistant, like yes or ok, must stand alone
+    private static final Pattern SMALL_TALK = Pattern.compile(
+            "^((hi|hello|hey|yo|thanks|thank you|thx|ty|cool|great|nice|awesome|perfect|got it|sounds good|"
+                    + "makes sense|bye|goodbye|good (morning|afternoon|evening|night)|lol)"
+                    + "([\\s,]+(thanks|thank you|there|all|everyone|again|so much|a lot|very much))?"
+                    + "|ok|okay|k|yes|no|sure)[\\s!.,:;)]*$",
+            Pattern.CASE_INSENSITIVE);
+
+    //Jira keys and error codes like ABC-123, dotted names like spring.ai.model and anything quoted as code
+    private static final Pattern IDENTIFIER = Pattern.compile("\\b[A-Z][A-Z0-9]+-\\d+\\b|\\b\\w+(\\.\\w+){2,}\\b|`[^`]+`");
+
+    private static final Pattern QUESTION = Pattern.compile(
+            "\\?|^(what|how|why|where|when|who|which|explain|describe|summari[sz]e|find|show me|tell me)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern THINKING = Pattern.compile("(?s)<think>.*?</think>");
+    private static final Pattern ANSWER_SEPARATOR = Pattern.compile("[\\s`'\"*:,.]+");
+    private static final String SKIP = "SKIP";
+
+    public enum Source {
+        COMMAND, HEURISTIC, MODEL, FALLBACK
+    }
+
+    public record Route(boolean retrieve, SlashCommand slashCommand, Source source) {
+    }
+
+    private final SlashCommandService slashCommandService;
+    private final IntentRouterProperties intentRouterProperties;
+    private final MeterRegistry meterRegistry;
+    private final PromptTemplate intentPrompt;
+    private final ChatClient intentClient;
+
+    public IntentRouter(SlashCommandService slashCommandService,
+                        OllamaApi ollamaApi,
+                        IntentRouterProperties intentRouterProperties,
+                        MeterRegistry meterRegistry,
+                        @Value("classpath:prompts/intent_prompt.st") Resource intentPrompt) {
+        this.slashCommandService = slashCommandService;
+        this.intentRouterProperties = intentRouterProperties;
+        this.meterRegistry = meterRegistry;
+        this.intentPrompt = new PromptTemplate(intentPrompt);
+
+        String model = intentRouterProperties.getModel();
+
+        if (StringUtils.isBlank(model)) {
+            this.intentClient = null;
+            return;
+        }
+
+        log.info("Routing chat intents with model: {}", model);
+
+        OllamaChatModel intentModel = OllamaChatModel.builder()
+                .ollamaApi(ollamaApi)
+                .defaultOptions(OllamaChatOptions.builder()
+                        .model(model)
+                        .temperature(0.0)
+                        .build())
+                .modelManagementOptions(ModelManagementOptions.builder()
+                        .pullModelStrategy(PullModelStrategy.WHEN_MISSING)
+                        .build())
+                .build();
+
+        this.intentClient = ChatClient.create(intentModel);
+    }
+
+    /**
+     * Routes a chat turn. The prompt is only re-chosen when the user did not pick one, an explicit slash command
+     * always keeps its prompt.
+     */
+    public Route route(String message, SlashCommand requested, boolean promptRoutable) {
+        if (!intentRouterProperties.isEnabled()) {
+            return new Route(true, requested, Source.FALLBACK);
+        }
+
+        long start = System.nanoTime();
+        Route route = decide(message, requested, promptRoutable);
+        long elapsedNanos = System.nanoTime() - start;
+
+        record(route, elapsedNanos);
+
+        log.debug("Routed chat turn: retrieve {}, prompt {}, source {} in {} ms",
+                route.retrieve(), route.slashCommand().name, route.source(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+
+        return route;
+    }
+
+    private Route decide(String message, SlashCommand requested, boolean promptRoutable) {
+        if (TOOL.equals(requested.commandType)) {
+            return new Route(false, requested, Source.COMMAND);
+        }
+
+        String text = StringUtils.trimToEmpty(message);
+
+        if (SMALL_TALK.matcher(text).matches()) {
+            return new Route(false, requested, Source.HEURISTIC);
+        }
+
+        if (IDENTIFIER.matcher(text).find() || QUESTION.matcher(text).find()) {
+            return new Route(true, requested, Source.HEURISTIC);
+        }
+
+        Route fallback = new Route(true, requested, Source.FALLBACK);
+
+        if (intentClient == null) {
+            return fallback;
+        }
+
+        List<SlashCommand> catalog = promptRoutable ? promptCatalog(requested) : List.of(requested);
+
+        return Mono.fromCallable(() -> classify(text, requested, catalog))
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(Duration.ofMillis(intentRouterProperties.getTimeoutMs()))
+                .onErrorResume(exception -> {
+                    log.warn("Intent classification failed, keeping retrieval: {}", exception.toString());
+                    return Mono.empty();
+                })
+                .blockOptional()
+                .orElse(fallback);
+    }
+
+    private Route classify(String message, SlashCommand requested, List<SlashCommand> catalog) {
+        String promptCatalog = catalog.stream()
+                .map(slashCommand -> "- " + slashCommand.name + ": " + StringUtils.defaultString(slashCommand.description))
+                .collect(Collectors.joining("\n"));
+
+        String prompt = intentPrompt.render(Map.of(
+                "prompt_catalog", promptCatalog,
+                "user_message", message,
+                "default_prompt", requested.name));
+
+        String answer = intentClient.prompt()
+                .user(prompt)
+                .call()
+                .content();
+
+        return parse(answer, requested, catalog);
+    }
+
+    /**
+     * Reads the model's answer, tolerating reasoning blocks and stray formatting. An answer without a usable prompt
+     * name keeps the requested prompt, an answer without SKIP keeps retrieval.
+     */
+    static Route parse(String answer, SlashCommand requested, List<SlashCommand> catalog) {
+        if (StringUtils.isBlank(answer)) {
+            return null;
+        }
+
+        String content = THINKING.matcher(answer).replaceAll("").trim();
+        Set<String> tokens = Arrays.stream(ANSWER_SEPARATOR.split(content))
+                .filter(StringUtils::isNotBlank)
+                .collect(Collectors.toSet());
+
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        SlashCommand slashCommand = catalog.stream()
+                .filter(candidate -> tokens.contains(candidate.name))
+                .findFirst()
+                .orElse(requested);
+
+        boolean skip = tokens.stream().anyMatch(SKIP::equalsIgnoreCase);
+
+        return new Route(!skip, slashCommand, Source.MODEL);
+    }
+
+    private List<SlashCommand> promptCatalog(SlashCommand requested) {
+        List<SlashCommand> prompts = slashCommandService.slashCommands().stream()
+                .filter(slashCommand -> PROMPT.equals(slashCommand.commandType))
+                .toList();
+
+        return prompts.isEmpty() ? List.of(requested) : prompts;
+    }
+
+    /**
+     * Skip rate is {@code chat.intent.routes} tagged {@code retrieval=skip} over all routes. Every skip adds the
+     * current mean retrieval time to {@code chat.intent.retrieval.saved}, an estimate of the latency not spent.
+     */
+    private void record(Route route, long elapsedNanos) {
+        String source = route.source().name().toLowerCase();
+
+        Counter.builder(ROUTES)
+                .tag("retrieval", route.retrieve() ? "retrieve" : "skip")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+
+        Timer.builder(CLASSIFICATION)
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        if (route.retrieve()) {
+            return;
+        }
+
+        Timer retrievalTimer = meterRegistry.find(RETRIEVAL_TIMER).timer();
+
+        if (retrievalTimer != null && retrievalTimer.count() > 0) {
+            Counter.builder(RETRIEVAL_SAVED)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry)
+                    .increment(retrievalTimer.mean(TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -46,6 +46,7 @@ public class PromptService {
     private final VectorStoreService vectorStoreService;
     private final McpSyncClient mcpClient;
     private final McpPromptAdapter mcpPromptAdapter;
+    private final IntentRouter intentRouter;
 
     @Value("${solesonic.llm.bot.name}")
     private String agentName;
@@ -56,13 +57,15 @@ public class PromptService {
             SlashCommandService slashCommandService,
             VectorStoreService vectorStoreService,
             McpSyncClient mcpClient,
-            McpPromptAdapter mcpPromptAdapter) {
+            McpPromptAdapter mcpPromptAdapter,
+            IntentRouter intentRouter) {
         this.chatClient = chatClient;
         this.userPreferencesService = userPreferencesService;
         this.slashCommandService = slashCommandService;
         this.vectorStoreService = vectorStoreService;
         this.mcpClient = mcpClient;
         this.mcpPromptAdapter = mcpPromptAdapter;
+        this.intentRouter = intentRouter;
     }
 
     public String model(UUID userId) {
@@ -74,16 +77,15 @@ public class PromptService {
         String model = model(userId);
         String message = chatMessage.chatMessage();
         Set<String> commands = chatMessage.commands();
+        boolean defaultCommand = CollectionUtils.isEmpty(commands);
 
-        if (CollectionUtils.isEmpty(commands)) {
+        if (defaultCommand) {
             log.info("Using default command.");
             commands = Set.of(DEFAULT);
         }
 
         List<SlashCommand> slashCommands = slashCommandService.commands(commands);
 
-        Advisor retrievalAugmentationAdvisor = vectorStoreService.retrievalAugmentationAdvisor(userId);
-
         Object principal = authentication.getPrincipal();
 
         if (!(principal instanceof Jwt jwt)) {
@@ -97,10 +99,17 @@ public class PromptService {
                 CHAT_ID, chatId,
                 PROGRESS_TOKEN, chatId);
 
-        SlashCommand slashCommand = slashCommands.stream()
+        SlashCommand requestedCommand = slashCommands.stream()
                 .findFirst()
                 .orElseThrow(IllegalStateException::new);
 
+        IntentRouter.Route route = intentRouter.route(message, requestedCommand, defaultCommand);
+        SlashCommand slashCommand = route.slashCommand();
+
+        List<Advisor> retrievalAdvisors = route.retrieve()
+                ? List.of(vectorStoreService.retrievalAugmentationAdvisor(userId))
+                : List.of();
+
         switch (slashCommand.commandType) {
             case TOOL -> {
                 log.info("Tool invoke: {}", slashCommand.command);
@@ -120,7 +129,7 @@ public class PromptService {
                         .advisors(advisorSpec -> advisorSpec
                                 .param(CONVERSATION_ID, chatId)
                         )
-                        .advisors(retrievalAugmentationAdvisor)
+                        .advisors(retrievalAdvisors)
                         .toolContext(contextMap)
                         .stream()
                         .content();
@@ -140,7 +149,7 @@ public class PromptService {
                         .advisors(advisorSpec -> advisorSpec
                                 .param(CONVERSATION_ID, chatId)
                         )
-                        .advisors(retrievalAugmentationAdvisor)
+                        .advisors(retrievalAdvisors)
                         .toolContext(contextMap)
                         .options(OllamaChatOptions.builder().model(model))
                         .stream()
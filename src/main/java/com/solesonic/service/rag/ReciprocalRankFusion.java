@@ -0,0 +1,44 @@
+package com.solesonic.service.rag;
+
+import org.springframework.ai.document.Document;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges ranked result lists by reciprocal rank fusion: a document scores {@code 1 / (k + rank)} in every list it
+ * appears in, so only ranks matter and scores from different searches never have to be made comparable.
+ */
+public final class ReciprocalRankFusion {
+
+    private ReciprocalRankFusion() {
+    }
+
+    /**
+     * @return the {@code topK} best fused documents, each carrying its fused score. Ties keep the order of the
+     * first list a document appeared in.
+     */
+    public static List<Document> fuse(List<List<Document>> rankings, int k, int topK) {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        Map<String, Document> documents = new LinkedHashMap<>();
+
+        for (List<Document> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document document = ranking.get(rank);
+
+                scores.merge(document.getId(), 1.0 / (k + rank + 1), Double::sum);
+                documents.putIfAbsent(document.getId(), document);
+            }
+        }
+
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+                .limit(topK)
+                .map(score -> documents.get(score.getKey()).mutate()
+                        .score(score.getValue())
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,133 @@
+package com.solesonic.service.rag;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.solesonic.model.VectorSearch;
+import com.solesonic.model.document.DocumentSource;
+import com.solesonic.redis.publisher.RetrievalCacheInvalidationPublisher;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Caches for the two expensive steps of retrieval. Query embeddings only depend on the question, so they are kept
+ * until evicted by size. Search results depend on the corpus, so they live briefly and are dropped on every node as
+ * soon as any node writes or deletes vectors.
+ */
+@Component
+public class RetrievalCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s?!.]+$");
+
+    private final RetrievalCacheInvalidationPublisher retrievalCacheInvalidationPublisher;
+    private final Cache<String, float[]> embeddings;
+    private final Cache<ResultKey, List<Document>> results;
+
+    public RetrievalCache(RetrievalCacheInvalidationPublisher retrievalCacheInvalidationPublisher,
+                          @Value("${rag.cache.embedding-max-size:10000}") long embeddingMaximumSize,
+                          @Value("${rag.cache.result-max-size:1000}") long resultMaximumSize,
+                          @Value("${rag.cache.result-ttl-seconds:60}") long resultTtlSeconds) {
+        this.retrievalCacheInvalidationPublisher = retrievalCacheInvalidationPublisher;
+        this.embeddings = Caffeine.newBuilder()
+                .maximumSize(embeddingMaximumSize)
+                .build();
+        this.results = Caffeine.newBuilder()
+                .maximumSize(resultMaximumSize)
+                .expireAfterWrite(Duration.ofSeconds(resultTtlSeconds))
+                .build();
+    }
+
+    /**
+     * Embedding of the question, asking the model only for questions not seen before in this form.
+     */
+    public float[] embedding(String query, Function<String, float[]> embedder) {
+        return embeddings.get(normalize(query), _ -> embedder.apply(query));
+    }
+
+    public List<Document> results(ResultKey resultKey, Supplier<List<Document>> search) {
+        return results.get(resultKey, _ -> search.get());
+    }
+
+    /**
+     * Drops cached results here and on every other node, called whenever the corpus changes. Inside a transaction
+     * this waits for the commit, so a search in between cannot cache the old corpus again.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow();
+                }
+            });
+        } else {
+            invalidateNow();
+        }
+    }
+
+    public void evictResults() {
+        results.invalidateAll();
+    }
+
+    private void invalidateNow() {
+        evictResults();
+        retrievalCacheInvalidationPublisher.publish();
+    }
+
+    /**
+     * Case, spacing and closing punctuation do not change what a question asks for.
+     */
+    static String normalize(String query) {
+        String collapsed = WHITESPACE.matcher(query.strip().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(collapsed).replaceAll("");
+    }
+
+    /**
+     * Sign bits of the embedding. Questions whose embeddings agree in the sign of every dimension are close enough to
+     * share results.
+     */
+    static String bucket(float[] embedding) {
+        byte[] signs = new byte[(embedding.length + 7) / 8];
+
+        for (int index = 0; index < embedding.length; index++) {
+            if (embedding[index] >= 0) {
+                signs[index / 8] |= (byte) (1 << (index % 8));
+            }
+        }
+
+        return HexFormat.of().formatHex(signs);
+    }
+
+    /**
+     * Identifies a search. {@code terms} is set for hybrid searches only, the full text side matches exact words
+     * that a shared embedding bucket says nothing about.
+     */
+    public record ResultKey(String bucket,
+                            String terms,
+                            double similarityThreshold,
+                            int topK,
+                            DocumentSource documentSource,
+                            List<UUID> trainingDocumentIds) {
+
+        public static ResultKey of(float[] embedding, String terms, VectorSearch vectorSearch) {
+            return new ResultKey(bucket(embedding),
+                    terms,
+                    vectorSearch.similarityThreshold(),
+                    vectorSearch.topK(),
+                    vectorSearch.documentSource(),
+                    vectorSearch.trainingDocumentIds());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.solesonic.service.rag;
+
+import com.solesonic.model.training.CompactionReport;
+import com.solesonic.model.training.DocumentStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static com.solesonic.model.training.DocumentStatus.*;
+
+/**
+ * Frees the content of documents that will never be read again. Replaced, removed and completed documents keep their
+ * row and history but lose their large object once they are older than the retention window, then any large object
+ * no document references is unlinked. Chunk cache entries no ingest has reused for a while are pruned as well.
+ */
+@Service
+public class TrainingDocumentCompactionService {
+    private static final Logger log = LoggerFactory.getLogger(TrainingDocumentCompactionService.class);
+
+    /**
+     * Statuses whose content is no longer needed, failed and in-flight documents keep theirs for retries.
+     */
+    private static final List<String> PURGEABLE_STATUSES = Stream.of(COMPLETED, REPLACED, REMOVED, DUPLICATE)
+            .map(DocumentStatus::name)
+            .toList();
+
+    //Keeps concurrent nodes from unlinking the same objects
+    private static final String COMPACTION_LOCK = "training_document_compaction";
+
+    private final JdbcClient jdbcClient;
+    private final TransactionTemplate transactionTemplate;
+    private final TrainingDocumentContentStore trainingDocumentContentStore;
+    private final Duration retention;
+    private final Duration chunkCacheRetention;
+    private final int batchSize;
+
+    public TrainingDocumentCompactionService(JdbcClient jdbcClient,
+                                             TransactionTemplate transactionTemplate,
+                                             TrainingDocumentContentStore trainingDocumentContentStore,
+                                             @Value("${training.compaction.retention-days:30}") long retentionDays,
+                                             @Value("${training.compaction.chunk-cache-retention-days:90}") long chunkCacheRetentionDays,
+                                             @Value("${training.compaction.batch-size:500}") int batchSize) {
+        this.jdbcClient = jdbcClient;
+        this.transactionTemplate = transactionTemplate;
+        this.trainingDocumentContentStore = trainingDocumentContentStore;
+        this.retention = Duration.ofDays(retentionDays);
+        this.chunkCacheRetention = Duration.ofDays(chunkCacheRetentionDays);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Purges and unlinks in batches, each in its own transaction, until nothing is left.
+     */
+    public CompactionReport compact() {
+        ZonedDateTime cutoff = ZonedDateTime.now().minus(retention);
+        ZonedDateTime chunkCacheCutoff = ZonedDateTime.now().minus(chunkCacheRetention);
+
+        CompactionReport compactionReport = CompactionReport.EMPTY;
+        CompactionReport batch;
+
+        do {
+            batch = Objects.requireNonNull(transactionTemplate.execute(_ -> purge(cutoff)));
+            compactionReport = compactionReport.plus(batch);
+        } while (batch.purgedDocuments() == batchSize);
+
+        do {
+            batch = Objects.requireNonNull(transactionTemplate.execute(_ -> unlinkOrphans()));
+            compactionReport = compactionReport.plus(batch);
+        } while (batch.unlinkedObjects() == batchSize);
+
+        do {
+            batch = Objects.requireNonNull(transactionTemplate.execute(_ -> pruneChunkCache(chunkCacheCutoff)));
+            compactionReport = compactionReport.plus(batch);
+        } while (batch.prunedChunks() == batchSize);
+
+        log.info("Compaction purged content of {} training documents, unlinked {} large objects, reclaimed {} bytes "
+                        + "and pruned {} cached chunks",
+                compactionReport.purgedDocuments(),
+                compactionReport.unlinkedObjects(),
+                compactionReport.reclaimedBytes(),
+                compactionReport.prunedChunks());
+
+        return compactionReport;
+    }
+
+    /**
+     * Drops the content reference of documents past the retention window. Duplicates share the original's object,
+     * which is only unlinked once no row references it.
+     */
+    private CompactionReport purge(ZonedDateTime cutoff) {
+        int purged = jdbcClient.sql("""
+                        UPDATE public.training_document
+                        SET file_data = NULL
+                        WHERE id IN (SELECT id
+                                     FROM public.training_document
+                                     WHERE file_data IS NOT NULL
+                                       AND current_status IN (:statuses)
+                                       AND updated < :cutoff
+                                     LIMIT :batchSize
+                                     FOR UPDATE SKIP LOCKED)
+                        """)
+                .param("statuses", PURGEABLE_STATUSES)
+                .param("cutoff", cutoff.toOffsetDateTime())
+                .param("batchSize", batchSize)
+                .update();
+
+        return new CompactionReport(purged, 0, 0, 0);
+    }
+
+    /**
+     * Unlinks large objects owned by this role that no document references. Objects written by uploads that have
+     * not committed yet are invisible here, so they are never mistaken for orphans.
+     */
+    private CompactionReport unlinkOrphans() {
+        Boolean locked = jdbcClient.sql("SELECT pg_try_advisory_xact_lock(hashtext(:lock))")
+                .param("lock", COMPACTION_LOCK)
+                .query(Boolean.class)
+                .single();
+
+        if (!Boolean.TRUE.equals(locked)) {
+            log.debug("Another node is unlinking orphaned large objects");
+            return CompactionReport.EMPTY;
+        }
+
+        List<Long> orphans = jdbcClient.sql("""
+                        SELECT m.oid::bigint
+                        FROM pg_catalog.pg_largeobject_metadata m
+                        WHERE m.lomowner = (SELECT r.oid FROM pg_catalog.pg_roles r WHERE r.rolname = current_user)
+                          AND NOT EXISTS (SELECT 1
+                                          FROM public.training_document td
+                                          WHERE td.file_data = m.oid)
+                        LIMIT :batchSize
+                        """)
+                .param("batchSize", batchSize)
+                .query(Long.class)
+                .list();
+
+        long reclaimedBytes = 0;
+
+        for (long oid : orphans) {
+            reclaimedBytes += trainingDocumentContentStore.unlink(oid);
+        }
+
+        return new CompactionReport(0, orphans.size(), reclaimedBytes, 0);
+    }
+
+    /**
+     * Deletes chunk cache entries not reused since the cutoff, the next ingest of such a chunk calls the models again.
+     */
+    private CompactionReport pruneChunkCache(ZonedDateTime cutoff) {
+        int pruned = jdbcClient.sql("""
+                        DELETE FROM public.chunk_cache
+                        WHERE embedding_hash IN (SELECT embedding_hash
+                                                 FROM public.chunk_cache
+                                                 WHERE last_used < :cutoff
+                                                 LIMIT :batchSize
+                                                 FOR UPDATE SKIP LOCKED)
+                        """)
+                .param("cutoff", cutoff.toOffsetDateTime())
+                .param("batchSize", batchSize)
+                .update();
+
+        return new CompactionReport(0, 0, 0, pruned);
+    }
+}
@@ -0,0 +1,138 @@
+package com.solesonic.service.rag;
+
+import com.solesonic.exception.ChatException;
+import org.postgresql.PGConnection;
+import org.postgresql.largeobject.LargeObject;
+import org.postgresql.largeobject.LargeObjectManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Training document content in Postgres large objects, streamed in and out so a document is never held in heap.
+ */
+@Service
+public class TrainingDocumentContentStore {
+    private static final Logger log = LoggerFactory.getLogger(TrainingDocumentContentStore.class);
+
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+
+    public TrainingDocumentContentStore(DataSource dataSource, TransactionTemplate transactionTemplate) {
+        this.dataSource = dataSource;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Streams content into a new large object. Runs in the transaction that saves the owning row so a failed save
+     * does not leave the object behind.
+     *
+     * @return the oid of the new large object
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long write(InputStream content) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+
+        try {
+            LargeObjectManager largeObjectManager = largeObjectManager(connection);
+            long oid = largeObjectManager.createLO(LargeObjectManager.READWRITE);
+
+            try (LargeObject largeObject = largeObjectManager.open(oid, LargeObjectManager.WRITE);
+                 OutputStream outputStream = largeObject.getOutputStream()) {
+                long written = content.transferTo(outputStream);
+                log.debug("Stored {} bytes in large object {}", written, oid);
+            }
+
+            return oid;
+        } catch (SQLException | IOException e) {
+            throw new ChatException("Failed to store document content", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Copies a large object to a temporary file for readers that need a file or re-readable resource. The caller
+     * owns the file and must delete it.
+     */
+    public Path copyToTempFile(long oid) {
+        return transactionTemplate.execute(_ -> {
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            Path tempFile = null;
+
+            try {
+                tempFile = Files.createTempFile("training-document-", ".tmp");
+
+                try (LargeObject largeObject = largeObjectManager(connection).open(oid, LargeObjectManager.READ);
+                     InputStream inputStream = largeObject.getInputStream();
+                     OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                    inputStream.transferTo(outputStream);
+                }
+
+                return tempFile;
+            } catch (SQLException | IOException e) {
+                deleteQuietly(tempFile);
+                throw new ChatException("Failed to read document content", e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        });
+    }
+
+    /**
+     * Unlinks a large object in the caller's transaction.
+     *
+     * @return the size of the unlinked object in bytes
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long unlink(long oid) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+
+        try {
+            LargeObjectManager largeObjectManager = largeObjectManager(connection);
+            long size;
+
+            try (LargeObject largeObject = largeObjectManager.open(oid, LargeObjectManager.READ)) {
+                size = largeObject.size64();
+            }
+
+            largeObjectManager.unlink(oid);
+            log.debug("Unlinked large object {} of {} bytes", oid, size);
+
+            return size;
+        } catch (SQLException e) {
+            throw new ChatException("Failed to delete document content", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    public static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Unable to delete temporary file {}", path, e);
+        }
+    }
+
+    private static LargeObjectManager largeObjectManager(Connection connection) throws SQLException {
+        return connection.unwrap(PGConnection.class).getLargeObjectAPI();
+    }
+}
@@ -1,25 +1,33 @@
 package com.solesonic.service.rag;
 
 import com.solesonic.exception.ChatException;
+import com.solesonic.model.training.ConfluencePageVersion;
 import com.solesonic.model.training.DocumentStatus;
 import com.solesonic.model.training.StatusHistory;
 import com.solesonic.model.training.TrainingDocument;
+import com.solesonic.model.training.TrainingJob;
 import com.solesonic.repository.ollama.StatusHistoryRepository;
 import com.solesonic.repository.ollama.TrainingDocumentRepository;
+import com.solesonic.repository.ollama.TrainingJobRepository;
+import org.apache.commons.collections4.ListUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.ZonedDateTime;
-import java.util.Comparator;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
+import static com.solesonic.model.document.DocumentSource.USER;
 import static com.solesonic.model.training.DocumentStatus.FAILED;
 
 @Service
@@ -27,28 +35,51 @@ public class TrainingDocumentService {
     private static final Logger log = LoggerFactory.getLogger(TrainingDocumentService.class);
     private final TrainingDocumentRepository trainingDocumentRepository;
     private final StatusHistoryRepository statusHistoryRepository;
+    private final TrainingJobRepository trainingJobRepository;
+    private final TrainingDocumentContentStore trainingDocumentContentStore;
+    private final TransactionTemplate transactionTemplate;
+
+    //Keeps the IN list of the version lookup well below the bind parameter limit
+    private static final int CONFLUENCE_PAGE_ID_BATCH_SIZE = 1000;
 
     public TrainingDocumentService(TrainingDocumentRepository trainingDocumentRepository,
-                                   StatusHistoryRepository statusHistoryRepository) {
+                                   StatusHistoryRepository statusHistoryRepository,
+                                   TrainingJobRepository trainingJobRepository,
+                                   TrainingDocumentContentStore trainingDocumentContentStore,
+                                   TransactionTemplate transactionTemplate) {
         this.trainingDocumentRepository = trainingDocumentRepository;
         this.statusHistoryRepository = statusHistoryRepository;
+        this.trainingJobRepository = trainingJobRepository;
+        this.trainingDocumentContentStore = trainingDocumentContentStore;
+        this.transactionTemplate = transactionTemplate;
     }
 
     public List<TrainingDocument> findAll() {
-        List<TrainingDocument> trainingDocuments = new java.util.ArrayList<>(trainingDocumentRepository.findAllWithoutContent()
+        List<TrainingDocument> trainingDocuments = new ArrayList<>(trainingDocumentRepository.findAllWithoutContent()
                 .orElse(List.of()));
 
         for(TrainingDocument trainingDocument : trainingDocuments) {
-            List<DocumentStatus> documentStatuses = statusHistoryRepository.findByDocumentId(trainingDocument.getId());
-            trainingDocument.setDocumentStatus(documentStatuses.stream().findFirst().orElse(FAILED));
+            if(trainingDocument.getDocumentStatus() == null) {
+                trainingDocument.setDocumentStatus(FAILED);
+            }
         }
 
-        trainingDocuments.sort(Comparator.comparingInt(trainingDocument ->
-                trainingDocument.getDocumentStatus() != null ? trainingDocument.getDocumentStatus().ordinal() : Integer.MAX_VALUE));
+        trainingDocuments.sort(Comparator.comparingInt(trainingDocument -> trainingDocument.getDocumentStatus().ordinal()));
 
         return trainingDocuments;
     }
 
+    /**
+     * Saves a new document, streaming its content into a large object in the same transaction.
+     */
+    @Transactional
+    public TrainingDocument save(TrainingDocument trainingDocument, InputStream content) {
+        trainingDocument.setFileOid(trainingDocumentContentStore.write(content));
+
+        return save(trainingDocument);
+    }
+
+    @Transactional
     public TrainingDocument save(TrainingDocument trainingDocument) {
         trainingDocument.setCreated(ZonedDateTime.now());
         trainingDocument.setUpdated(ZonedDateTime.now());
@@ -62,9 +93,14 @@ public class TrainingDocumentService {
 
         statusHistoryRepository.save(statusHistory);
 
+        if (trainingDocument.getDocumentStatus() == DocumentStatus.QUEUED) {
+            trainingJobRepository.save(TrainingJob.queued(trainingDocument.getId()));
+        }
+
         return trainingDocument;
     }
 
+    @Transactional
     public TrainingDocument update(TrainingDocument trainingDocument, DocumentStatus documentStatus) {
         log.info("Updating training document: {}", trainingDocument.getId());
         trainingDocument.setUpdated(ZonedDateTime.now());
@@ -87,60 +123,150 @@ public class TrainingDocumentService {
 
     public TrainingDocument get(UUID documentId) {
         log.info("Getting document id: {}", documentId);
-        TrainingDocument trainingDocument = trainingDocumentRepository.findById(documentId).orElseThrow(() -> new ChatException("Error getting training document"));
+        return trainingDocumentRepository.findById(documentId).orElseThrow(() -> new ChatException("Error getting training document"));
+    }
 
-        List<DocumentStatus> documentStatuses = statusHistoryRepository.findByDocumentId(trainingDocument.getId());
-        trainingDocument.setDocumentStatus(documentStatuses.stream().findFirst().orElse(null));
+    /**
+     * Newest live version of each page, keyed by page id. Pages that were never ingested, or were removed since, are
+     * absent.
+     */
+    public Map<String, ConfluencePageVersion> latestConfluencePageVersions(Collection<String> confluencePageIds) {
+        log.debug("Finding latest versions of {} confluence pages", confluencePageIds.size());
 
-        return trainingDocument;
+        Map<String, ConfluencePageVersion> latestVersions = new HashMap<>();
+
+        for (List<String> batch : ListUtils.partition(List.copyOf(confluencePageIds), CONFLUENCE_PAGE_ID_BATCH_SIZE)) {
+            for (ConfluencePageVersion confluencePageVersion : trainingDocumentRepository.findLatestConfluencePageVersions(batch)) {
+                latestVersions.put(confluencePageVersion.getConfluencePageId(), confluencePageVersion);
+            }
+        }
+
+        return latestVersions;
     }
 
-    public TrainingDocument findByName(String fileName) {
-        log.info("Getting document by name: {}", fileName);
-        return trainingDocumentRepository.findByFileName(fileName)
-                .orElse(null);
+    public List<String> liveConfluencePageIds() {
+        return trainingDocumentRepository.findLiveConfluencePageIds();
+    }
+
+    /**
+     * Marks a document as replaced by a newer one without loading its content.
+     */
+    @Transactional
+    public void replace(UUID trainingDocumentId, UUID replacedById) {
+        log.info("Updating document id: {} to status: {}", trainingDocumentId, DocumentStatus.REPLACED);
+
+        trainingDocumentRepository.setReplacedById(trainingDocumentId, replacedById);
+
+        status(trainingDocumentId, DocumentStatus.REPLACED);
     }
 
+    /**
+     * Records a new status for a document without loading it.
+     */
     @Transactional
-    public List<TrainingDocument> findByConfluencePageId(String confluencePageId) {
-        log.debug("Finding training documents by confluence page id: {}", confluencePageId);
+    public void status(UUID trainingDocumentId, DocumentStatus documentStatus) {
+        trainingDocumentRepository.setCurrentStatus(trainingDocumentId, documentStatus, ZonedDateTime.now());
+
+        StatusHistory statusHistory = new StatusHistory();
+        statusHistory.setDocumentStatus(documentStatus);
+        statusHistory.setDocumentId(trainingDocumentId);
+        statusHistory.setTimestamp(ZonedDateTime.now());
 
-        return trainingDocumentRepository.findByConfluenceId(confluencePageId)
-                .orElse(null);
+        statusHistoryRepository.save(statusHistory);
     }
 
+    /**
+     * Queues an upload unless identical content was uploaded before. The content hash is taken from the spooled
+     * upload before anything is stored, a renamed copy becomes a reference to the original instead of being stored
+     * and embedded again. An original whose training failed is queued again.
+     * <p>
+     * Concurrent uploads of the same content race on the unique content hash index, the loser fails on commit, runs
+     * again in a new transaction and resolves against the winner like any later upload would.
+     */
     public TrainingDocument queue(MultipartFile multipartFile) {
         log.debug("Queuing document.");
 
-        Resource newFileResource = multipartFile.getResource();
+        String fileName = multipartFile.getResource().getFilename();
+        String contentHash = contentHash(multipartFile);
 
-        String fileName = newFileResource.getFilename();
+        try {
+            return transactionTemplate.execute(_ -> queue(multipartFile, fileName, contentHash));
+        } catch (DataIntegrityViolationException e) {
+            log.info("Concurrent upload of {} stored the same content first, using it", fileName);
+            return transactionTemplate.execute(_ -> queue(multipartFile, fileName, contentHash));
+        }
+    }
+
+    private TrainingDocument queue(MultipartFile multipartFile, String fileName, String contentHash) {
+        Optional<TrainingDocument> original = trainingDocumentRepository.findFirstByContentHashAndDocumentSource(contentHash, USER);
 
-        TrainingDocument existing = findByName(fileName);
+        if (original.isPresent()) {
+            TrainingDocument existing = original.get();
 
-        if(existing != null) {
-            return existing;
+            if (existing.getDocumentStatus() == FAILED) {
+                requeue(existing);
+            }
+
+            if (Objects.equals(existing.getFileName(), fileName)) {
+                return existing;
+            }
+
+            log.info("Upload {} has the same content as document id: {}", fileName, existing.getId());
+            return save(duplicate(existing, fileName));
         }
 
-        TrainingDocument trainingDocument = trainingDocument(multipartFile, fileName, newFileResource);
+        TrainingDocument trainingDocument = trainingDocument(multipartFile, fileName);
+        trainingDocument.setContentHash(contentHash);
 
-        return save(trainingDocument);
+        //multipart uploads are spooled to disk, streaming from there keeps the upload out of heap
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            return save(trainingDocument, inputStream);
+        } catch (IOException e) {
+            throw new ChatException("Failed to upload document", e);
+        }
+    }
+
+    private void requeue(TrainingDocument trainingDocument) {
+        log.info("Re-queuing failed document id: {}", trainingDocument.getId());
+
+        status(trainingDocument.getId(), DocumentStatus.QUEUED);
+        trainingDocument.setDocumentStatus(DocumentStatus.QUEUED);
+
+        trainingJobRepository.save(TrainingJob.queued(trainingDocument.getId()));
+    }
+
+    private static String contentHash(MultipartFile multipartFile) {
+        try (DigestInputStream digestInputStream = new DigestInputStream(multipartFile.getInputStream(), MessageDigest.getInstance("SHA-256"))) {
+            digestInputStream.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(digestInputStream.getMessageDigest().digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new ChatException("Failed to upload document", e);
+        }
     }
 
-    private static TrainingDocument trainingDocument(MultipartFile multipartFile, String fileName, Resource newFileResource) {
+    /**
+     * A renamed copy shares the original's content and vectors, so it is never queued for training.
+     */
+    private static TrainingDocument duplicate(TrainingDocument original, String fileName) {
+        TrainingDocument duplicate = new TrainingDocument();
+        duplicate.setDocumentStatus(DocumentStatus.DUPLICATE);
+        duplicate.setFileName(fileName);
+        duplicate.setContentType(original.getContentType());
+        duplicate.setDocumentSource(USER);
+        duplicate.setFileOid(original.getFileOid());
+        duplicate.setMetadata(Map.of(TrainingDocument.DUPLICATE_OF, original.getId().toString()));
+
+        return duplicate;
+    }
+
+    private static TrainingDocument trainingDocument(MultipartFile multipartFile, String fileName) {
         String contentType = multipartFile.getContentType();
 
         TrainingDocument trainingDocument = new TrainingDocument();
         trainingDocument.setDocumentStatus(DocumentStatus.QUEUED);
         trainingDocument.setFileName(fileName);
         trainingDocument.setContentType(contentType);
-
-        try (InputStream inputStream = newFileResource.getInputStream()) {
-            byte[] fileContent = inputStream.readAllBytes();
-            trainingDocument.setFileData(fileContent);
-        } catch (IOException e) {
-            throw new ChatException("Failed to upload document", e);
-        }
+        trainingDocument.setDocumentSource(USER);
 
         return trainingDocument;
     }
@@ -1,46 +1,175 @@
 package com.solesonic.service.rag;
 
+import com.pgvector.PGvector;
+import com.solesonic.config.rag.HybridSearchProperties;
+import com.solesonic.config.rag.VectorStorageProperties;
 import com.solesonic.model.VectorSearch;
-import com.solesonic.model.training.VectorDocument;
+import com.solesonic.model.training.EmbeddedDocument;
 import com.solesonic.model.user.UserPreferences;
 import com.solesonic.repository.ollama.VectorStoreRepository;
 import com.solesonic.service.user.UserPreferencesService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.advisor.api.Advisor;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentMetadata;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.rag.advisor.RetrievalAugmentationAdvisor;
 import org.springframework.ai.rag.generation.augmentation.ContextualQueryAugmenter;
-import org.springframework.ai.rag.retrieval.search.VectorStoreDocumentRetriever;
 import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
 
-import java.util.Collections;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class VectorStoreService {
     private static final Logger log = LoggerFactory.getLogger(VectorStoreService.class);
 
-    private final VectorStore vectorStore;
+    public static final String RETRIEVAL_TIMER = "rag.retrieval";
+
     private final VectorStoreRepository vectorStoreRepository;
     private final UserPreferencesService userPreferencesService;
+    private final EmbeddingModel embeddingModel;
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcClient jdbcClient;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonMapper jsonMapper;
+    private final VectorStorageProperties vectorStorageProperties;
+    private final HybridSearchProperties hybridSearchProperties;
+    private final RetrievalCache retrievalCache;
+    private final Timer retrievalTimer;
+
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {};
+
+    //pgvector's default and maximum hnsw.ef_search
+    private static final int DEFAULT_EF_SEARCH = 40;
+    private static final int MAX_EF_SEARCH = 1000;
+
+    private static final String INSERT_VECTOR = """
+            INSERT INTO public.vector_store (id, content, metadata, embedding, embedding_half)
+            VALUES (?, ?, ?::jsonb, ?, CAST(? AS halfvec(1024)))
+            ON CONFLICT (id) DO UPDATE
+                SET content = EXCLUDED.content,
+                    metadata = EXCLUDED.metadata,
+                    embedding = EXCLUDED.embedding,
+                    embedding_half = EXCLUDED.embedding_half
+            """;
+
+    /**
+     * Cosine distance search. Source and document filters run against the indexed generated columns, so Postgres can
+     * choose between walking the HNSW index and scanning only the matching rows.
+     */
+    private static final String SIMILARITY_SEARCH = """
+            SELECT id, content, metadata, embedding <=> :embedding AS distance
+            FROM public.vector_store
+            WHERE embedding <=> :embedding < :maxDistance
+            %s
+            ORDER BY distance
+            LIMIT :topK
+            """;
+
+    /**
+     * Nearest candidates by half precision distance, re-ranked and thresholded by the exact full precision distance.
+     */
+    private static final String RERANKED_SIMILARITY_SEARCH = """
+            WITH candidates AS (
+                SELECT id, content, metadata, embedding
+                FROM public.vector_store
+                WHERE embedding_half IS NOT NULL
+                %s
+                ORDER BY embedding_half <=> CAST(:embedding AS halfvec(1024))
+                LIMIT :candidates
+            )
+            SELECT id, content, metadata, embedding <=> :embedding AS distance
+            FROM candidates
+            WHERE embedding <=> :embedding < :maxDistance
+            ORDER BY distance
+            LIMIT :topK
+            """;
+
+    /**
+     * Full text search served by the GIN index on {@code content_tsv}. Terms are OR-ed so a question that mentions
+     * one identifier still finds the chunks containing it, cover density ranking favours chunks matching many terms
+     * close together.
+     */
+    private static final String LEXICAL_SEARCH = """
+            SELECT id, content, metadata, ts_rank_cd(content_tsv, terms) AS rank
+            FROM public.vector_store, to_tsquery('english', :terms) AS terms
+            WHERE content_tsv @@ terms
+            ORDER BY rank DESC
+            LIMIT :limit
+            """;
+
+    //Splits a question into terms, keeping the characters identifiers like ABC-123 or spring.ai.model are made of
+    private static final Pattern TERM_SEPARATOR = Pattern.compile("[^\\p{Alnum}_.\\-]+");
+
+    private static final String BACKFILL_HALF_PRECISION = """
+            UPDATE public.vector_store
+            SET embedding_half = CAST(embedding AS halfvec(1024))
+            WHERE id IN (SELECT id
+                         FROM public.vector_store
+                         WHERE embedding_half IS NULL
+                           AND embedding IS NOT NULL
+                         LIMIT :batchSize
+                         FOR UPDATE SKIP LOCKED)
+            """;
 
     @Value("${spring.ai.similarity-threshold}")
     private Double defaultSimilarityThreshold;
 
-    public VectorStoreService(VectorStore vectorStore,
-                              VectorStoreRepository vectorStoreRepository,
-                              UserPreferencesService userPreferencesService) {
-        this.vectorStore = vectorStore;
+    public VectorStoreService(VectorStoreRepository vectorStoreRepository,
+                              UserPreferencesService userPreferencesService,
+                              EmbeddingModel embeddingModel,
+                              JdbcTemplate jdbcTemplate,
+                              JdbcClient jdbcClient,
+                              TransactionTemplate transactionTemplate,
+                              JsonMapper jsonMapper,
+                              VectorStorageProperties vectorStorageProperties,
+                              HybridSearchProperties hybridSearchProperties,
+                              RetrievalCache retrievalCache,
+                              MeterRegistry meterRegistry) {
         this.vectorStoreRepository = vectorStoreRepository;
         this.userPreferencesService = userPreferencesService;
+        this.embeddingModel = embeddingModel;
+        this.jdbcTemplate = jdbcTemplate;
+        this.jdbcClient = jdbcClient;
+        this.transactionTemplate = transactionTemplate;
+        this.jsonMapper = jsonMapper;
+        this.vectorStorageProperties = vectorStorageProperties;
+        this.hybridSearchProperties = hybridSearchProperties;
+        this.retrievalCache = retrievalCache;
+        this.retrievalTimer = Timer.builder(RETRIEVAL_TIMER).register(meterRegistry);
     }
 
+    /**
+     * Retrieval for chat fuses full text and vector search unless hybrid search is turned off, the vector side
+     * follows the configured storage mode either way. Each retrieval is timed, the intent router reports the mean as
+     * the latency saved by a skipped turn.
+     */
     public Advisor retrievalAugmentationAdvisor(UUID userId) {
         UserPreferences userPreferences = userPreferencesService.get(userId);
 
@@ -48,45 +177,224 @@ public class VectorStoreService {
                 .orElse(defaultSimilarityThreshold);
 
         return RetrievalAugmentationAdvisor.builder()
-                .documentRetriever(VectorStoreDocumentRetriever.builder()
-                        .similarityThreshold(similarityThreshold)
-                        .vectorStore(vectorStore)
-                        .build())
+                .documentRetriever(query -> retrievalTimer.record(() -> hybridSearchProperties.isEnabled()
+                        ? hybridSearch(query.text(), similarityThreshold)
+                        : findSimilarDocuments(new VectorSearch(query.text(), similarityThreshold, SearchRequest.DEFAULT_TOP_K))))
                 .queryAugmenter(ContextualQueryAugmenter.builder()
                         .allowEmptyContext(true)
                         .build())
                 .build();
     }
 
-    public void save(List<Document> documents) {
+    /**
+     * Embeds a batch of chunks with a single request to the embedding model.
+     */
+    public List<EmbeddedDocument> embed(List<Document> documents) {
+        List<String> texts = documents.stream()
+                .map(document -> document.getFormattedContent(MetadataMode.EMBED))
+                .toList();
+
+        List<float[]> embeddings = embeddingModel.embed(texts);
+
+        return IntStream.range(0, documents.size())
+                .mapToObj(index -> new EmbeddedDocument(documents.get(index), embeddings.get(index)))
+                .toList();
+    }
+
+    /**
+     * Writes already embedded chunks as one batched statement, with both the full and half precision embedding.
+     * Cached results are left alone, a document's writes invalidate them once its training job completes.
+     */
+    public int insert(List<EmbeddedDocument> embeddedDocuments) {
+        int[][] inserted = jdbcTemplate.batchUpdate(INSERT_VECTOR, embeddedDocuments, embeddedDocuments.size(),
+                (preparedStatement, embeddedDocument) -> {
+                    Document document = embeddedDocument.document();
+                    PGvector embedding = new PGvector(embeddedDocument.embedding());
+
+                    preparedStatement.setObject(1, UUID.fromString(document.getId()));
+                    preparedStatement.setString(2, document.getText());
+                    preparedStatement.setString(3, jsonMapper.writeValueAsString(document.getMetadata()));
+                    preparedStatement.setObject(4, embedding);
+                    preparedStatement.setObject(5, embedding);
+                });
+
+        return Arrays.stream(inserted)
+                .mapToInt(batch -> batch.length)
+                .sum();
+    }
+
+    /**
+     * Repeated questions reuse the cached query embedding and, until the corpus changes, the cached results.
+     */
+    public List<Document> findSimilarDocuments(VectorSearch vectorSearch) {
+        float[] embedding = retrievalCache.embedding(vectorSearch.query(), embeddingModel::embed);
+
+        return retrievalCache.results(RetrievalCache.ResultKey.of(embedding, null, vectorSearch),
+                () -> vectorSearch(vectorSearch, embedding));
+    }
+
+    private List<Document> vectorSearch(VectorSearch vectorSearch, float[] embedding) {
+        //search settings are transaction local, the template keeps them scoped to this search on every call path
+        return transactionTemplate.execute(_ -> findSimilarDocuments(vectorSearch, embedding));
+    }
+
+    private List<Document> findSimilarDocuments(VectorSearch vectorSearch, float[] embedding) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("embedding", new PGvector(embedding));
+        params.put("maxDistance", 1 - vectorSearch.similarityThreshold());
+        params.put("topK", vectorSearch.topK());
+
+        List<String> filters = new ArrayList<>();
+
+        if (vectorSearch.documentSource() != null) {
+            filters.add("AND document_source = :documentSource");
+            params.put("documentSource", vectorSearch.documentSource().name());
+        }
+
+        if (vectorSearch.trainingDocumentIds() != null && !vectorSearch.trainingDocumentIds().isEmpty()) {
+            filters.add("AND training_document_id IN (:trainingDocumentIds)");
+            params.put("trainingDocumentIds", vectorSearch.trainingDocumentIds());
+        }
+
+        int candidates = vectorSearch.topK() * vectorStorageProperties.getRerankFactor();
+
+        String sql = switch (vectorStorageProperties.getMode()) {
+            case FULL -> SIMILARITY_SEARCH.formatted(String.join("\n", filters));
+            case HALF -> {
+                params.put("candidates", candidates);
+                yield RERANKED_SIMILARITY_SEARCH.formatted(String.join("\n", filters));
+            }
+        };
+
+        if (vectorStorageProperties.getMode() == VectorStorageProperties.Mode.HALF && candidates > DEFAULT_EF_SEARCH) {
+            //the index walk stops after ef_search candidates, it has to cover every candidate the re-rank asks for
+            jdbcClient.sql("SELECT set_config('hnsw.ef_search', :efSearch, true)")
+                    .param("efSearch", String.valueOf(Math.min(candidates, MAX_EF_SEARCH)))
+                    .query(String.class)
+                    .single();
+        }
+
+        if (!filters.isEmpty()) {
+            //without iterative scans a filtered HNSW walk can return too few rows
+            jdbcClient.sql("SELECT set_config('hnsw.iterative_scan', 'strict_order', true)")
+                    .query(String.class)
+                    .single();
+        }
+
+        return jdbcClient.sql(sql)
+                .params(params)
+                .query((resultSet, _) -> {
+                    double distance = resultSet.getDouble("distance");
+
+                    Map<String, Object> metadata = metadata(resultSet);
+                    metadata.put(DocumentMetadata.DISTANCE.value(), distance);
+
+                    return document(resultSet, metadata, 1 - distance);
+                })
+                .list();
+    }
+
+    /**
+     * Chunks containing any term of the query, best full text rank first.
+     */
+    public List<Document> lexicalSearch(String query, int limit) {
+        String terms = terms(query);
+
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcClient.sql(LEXICAL_SEARCH)
+                .param("terms", terms)
+                .param("limit", limit)
+                .query((resultSet, _) -> document(resultSet, metadata(resultSet), resultSet.getDouble("rank")))
+                .list();
+    }
+
+    /**
+     * Runs the vector and full text searches in parallel and fuses their rankings. The full text side has no
+     * similarity threshold, an exact identifier match is relevant however far its embedding is from the question.
+     * It needs no embedding either, so it starts before the question is embedded and is dropped on a cache hit.
+     */
+    public List<Document> hybridSearch(String query, double similarityThreshold) {
+        VectorSearch vectorSearch = new VectorSearch(query, similarityThreshold, hybridSearchProperties.getCandidates());
+
+        CompletableFuture<List<Document>> lexicalResults = Mono.fromCallable(() -> lexicalSearch(query, vectorSearch.topK()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .toFuture();
+
         try {
-            vectorStore.accept(documents);
-        } catch (Exception e) {
-            log.error("Error saving vector", e);
-            throw new RuntimeException(e);
+            float[] embedding = retrievalCache.embedding(query, embeddingModel::embed);
+
+            return retrievalCache.results(RetrievalCache.ResultKey.of(embedding, terms(query), vectorSearch),
+                    () -> hybridSearch(vectorSearch, embedding, lexicalResults));
+        } finally {
+            lexicalResults.cancel(true);
         }
     }
 
-    public List<Document> findSimilarDocuments(VectorSearch vectorSearch) {
-        SearchRequest searchRequest = SearchRequest.builder()
-                .query(vectorSearch.query())
-                .similarityThreshold(vectorSearch.similarityThreshold())
-                .topK(vectorSearch.topK())
-                .build();
+    private List<Document> hybridSearch(VectorSearch vectorSearch, float[] embedding, CompletableFuture<List<Document>> lexicalResults) {
+        Mono<List<Document>> vectorResults = Mono.fromCallable(() -> vectorSearch(vectorSearch, embedding))
+                .subscribeOn(Schedulers.boundedElastic());
+
+        List<Document> fused = Mono.zip(vectorResults, Mono.fromFuture(lexicalResults),
+                        (vector, lexical) -> ReciprocalRankFusion.fuse(List.of(vector, lexical),
+                                hybridSearchProperties.getRrfK(),
+                                hybridSearchProperties.getTopK()))
+                .block();
+
+        return Optional.ofNullable(fused).orElse(List.of());
+    }
+
+    /**
+     * The question as an OR of quoted terms for {@code to_tsquery}, empty when it has no usable term.
+     */
+    private static String terms(String query) {
+        return TERM_SEPARATOR.splitAsStream(query)
+                .filter(term -> !term.isBlank())
+                .map(term -> "'" + term + "'")
+                .collect(Collectors.joining(" | "));
+    }
 
-        return vectorStore.similaritySearch(searchRequest);
+    private Map<String, Object> metadata(ResultSet resultSet) throws SQLException {
+        return new HashMap<>(jsonMapper.readValue(resultSet.getString("metadata"), METADATA_TYPE));
     }
 
-    public List<VectorDocument> findByTrainingDocumentId(UUID trainingDocumentId) {
-        return vectorStoreRepository.findByTrainingDocumentId(trainingDocumentId.toString())
-                .orElse(Collections.emptyList());
+    private static Document document(ResultSet resultSet, Map<String, Object> metadata, double score) throws SQLException {
+        return Document.builder()
+                .id(resultSet.getString("id"))
+                .text(resultSet.getString("content"))
+                .metadata(metadata)
+                .score(score)
+                .build();
     }
 
-    public void delete(List<VectorDocument> vectorDocuments) {
-        vectorStoreRepository.deleteAll(vectorDocuments);
+    /**
+     * Gives a batch of rows written before half precision storage existed their half precision embedding.
+     *
+     * @return the number of rows filled in, zero once the backfill has caught up
+     */
+    @Transactional
+    public int backfillHalfPrecision() {
+        return jdbcClient.sql(BACKFILL_HALF_PRECISION)
+                .param("batchSize", vectorStorageProperties.getBackfillBatchSize())
+                .update();
     }
 
-    public void delete(UUID trainingDocumentId) {
-        vectorStoreRepository.deleteById(trainingDocumentId);
+    /**
+     * Deletes the chunks of a training document without loading them.
+     *
+     * @return the number of chunks deleted
+     */
+    @Transactional
+    public int deleteByTrainingDocumentId(UUID trainingDocumentId) {
+        int deleted = vectorStoreRepository.deleteByTrainingDocumentId(trainingDocumentId);
+        log.debug("Deleted {} vectors of training document id: {}", deleted, trainingDocumentId);
+
+        if (deleted > 0) {
+            retrievalCache.invalidate();
+        }
+
+        return deleted;
     }
 }
@@ -1,24 +1,44 @@
 package com.solesonic.service.redis;
 
+import org.springframework.data.domain.Range;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class ActiveStreamTracker {
     private static final String KEY = "user:active-streams";
+    private static final String RECENTLY_ACTIVE_KEY = "user:recently-active";
+
+    /**
+     * Open streams scored by their node's last heartbeat, so streams of a node that died stop counting on their own.
+     */
+    private static final String LIVE_STREAMS_KEY = "chat:live-streams";
+    public static final long HEARTBEAT_SECONDS = 10;
+    private static final Duration LIVENESS_WINDOW = Duration.ofSeconds(HEARTBEAT_SECONDS * 3);
 
     private final ReactiveStringRedisTemplate redisTemplate;
+    private final Set<String> localStreams = ConcurrentHashMap.newKeySet();
 
     public ActiveStreamTracker(ReactiveStringRedisTemplate redisTemplate) {
         this.redisTemplate = redisTemplate;
     }
 
     public Mono<Boolean> put(UUID userId, UUID chatId) {
+        localStreams.add(chatId.toString());
+
         return redisTemplate.opsForHash()
-                .put(KEY, userId.toString(), chatId.toString());
+                .put(KEY, userId.toString(), chatId.toString())
+                .flatMap(added -> redisTemplate.opsForZSet()
+                        .add(LIVE_STREAMS_KEY, chatId.toString(), System.currentTimeMillis())
+                        .then(touch(userId))
+                        .thenReturn(added));
     }
 
     public Mono<UUID> get(UUID userId) {
@@ -31,11 +51,57 @@ public class ActiveStreamTracker {
         String userKey = userId.toString();
         String expectedChatId = chatId.toString();
 
-        return redisTemplate.<String, String>opsForHash()
-                .get(KEY, userKey)
+        localStreams.remove(expectedChatId);
+
+        return redisTemplate.opsForZSet()
+                .remove(LIVE_STREAMS_KEY, expectedChatId)
+                .then(redisTemplate.<String, String>opsForHash().get(KEY, userKey))
                 .filter(expectedChatId::equals)
                 .flatMap(_ -> redisTemplate.opsForHash().remove(KEY, userKey))
                 .map(removed -> removed > 0)
                 .defaultIfEmpty(false);
     }
+
+    /**
+     * Number of chat streams open across all nodes. Streams whose node missed its heartbeats are pruned first.
+     */
+    public Mono<Long> count() {
+        double since = System.currentTimeMillis() - LIVENESS_WINDOW.toMillis();
+
+        return redisTemplate.opsForZSet()
+                .removeRangeByScore(LIVE_STREAMS_KEY, Range.rightOpen(0d, since))
+                .then(redisTemplate.opsForZSet().size(LIVE_STREAMS_KEY));
+    }
+
+    /**
+     * Re-scores the streams this node is serving, see {@link #count()}.
+     */
+    public Mono<Long> heartbeat() {
+        long now = System.currentTimeMillis();
+
+        return Flux.fromIterable(localStreams)
+                .flatMap(chatId -> redisTemplate.opsForZSet().add(LIVE_STREAMS_KEY, chatId, now))
+                .count();
+    }
+
+    /**
+     * Records that the user was active just now, scored by epoch millis.
+     */
+    public Mono<Boolean> touch(UUID userId) {
+        return redisTemplate.opsForZSet()
+                .add(RECENTLY_ACTIVE_KEY, userId.toString(), System.currentTimeMillis());
+    }
+
+    /**
+     * Users that were active within the given window. Entries older than the window are pruned first.
+     */
+    public Flux<UUID> recentlyActive(Duration window) {
+        double since = System.currentTimeMillis() - window.toMillis();
+
+        return redisTemplate.opsForZSet()
+                .removeRangeByScore(RECENTLY_ACTIVE_KEY, Range.rightOpen(0d, since))
+                .thenMany(redisTemplate.opsForZSet()
+                        .rangeByScore(RECENTLY_ACTIVE_KEY, Range.rightUnbounded(Range.Bound.inclusive(since))))
+                .map(UUID::fromString);
+    }
 }
@@ -6,6 +6,7 @@ import com.solesonic.model.chat.history.Chat;
 import com.solesonic.model.chat.history.ChatMessage;
 import com.solesonic.redis.service.RedisStreamService;
 import com.solesonic.repository.ollama.ChatRepository;
+import com.solesonic.service.chat.ChatLoadMonitor;
 import com.solesonic.service.chat.ElicitationService;
 import com.solesonic.service.ollama.ChatMessageService;
 import com.solesonic.service.prompt.PromptService;
@@ -44,19 +45,22 @@ public class RedisStreamingChatService {
     private final ChatMessageService chatMessageService;
     private final RedisStreamService redisStreamService;
     private final ActiveStreamTracker activeStreamTracker;
+    private final ChatLoadMonitor chatLoadMonitor;
 
     public RedisStreamingChatService(ChatRepository chatRepository,
                                      PromptService promptService,
                                      ElicitationService elicitationService,
                                      ChatMessageService chatMessageService,
                                      RedisStreamService redisStreamService,
-                                     ActiveStreamTracker activeStreamTracker) {
+                                     ActiveStreamTracker activeStreamTracker,
+                                     ChatLoadMonitor chatLoadMonitor) {
         this.chatRepository = chatRepository;
         this.promptService = promptService;
         this.elicitationService = elicitationService;
         this.chatMessageService = chatMessageService;
         this.redisStreamService = redisStreamService;
         this.activeStreamTracker = activeStreamTracker;
+        this.chatLoadMonitor = chatLoadMonitor;
     }
 
     private Chat save(Chat chat) {
@@ -115,6 +119,8 @@ public class RedisStreamingChatService {
 
         Flux<ServerSentEvent<?>> elicitationFlux = elicitationService.registerChat(chatId);
 
+        ChatLoadMonitor.Generation generation = chatLoadMonitor.start();
+
         Flux<ServerSentEvent<?>> cancelEvents = elicitationFlux
                 .filter(sse -> CANCEL_ACTION.equalsIgnoreCase(sse.event()))
                 .take(1)
@@ -123,6 +129,7 @@ public class RedisStreamingChatService {
         Flux<String> chunkObjects = Flux.defer(() -> promptService.stream(chatId, userId, chatRequest, authentication))
                 .subscribeOn(Schedulers.boundedElastic())
                 .filter(StringUtils::isNotEmpty)
+                .doOnNext(_ -> generation.firstToken())
                 .doOnNext(assembled::append);
 
         Flux<String> chunkFlow = chunkObjects.takeUntilOther(cancelEvents);
@@ -180,7 +187,10 @@ public class RedisStreamingChatService {
 
                     return Mono.empty();
                 })
-                .doFinally(_ -> cleanup(chatId, userId))
+                .doFinally(_ -> {
+                    generation.end();
+                    cleanup(chatId, userId);
+                })
                 .subscribe();
 
         cancelResponse.subscribe();
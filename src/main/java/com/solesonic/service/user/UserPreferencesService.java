@@ -1,21 +1,54 @@
 package com.solesonic.service.user;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.solesonic.model.atlassian.auth.AtlassianAccessToken;
 import com.solesonic.model.user.UserPreferences;
+import com.solesonic.redis.publisher.UserPreferencesInvalidationPublisher;
 import com.solesonic.repository.UserPreferencesRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class UserPreferencesService {
     private static final Logger log = LoggerFactory.getLogger(UserPreferencesService.class);
+
+    /**
+     * Preferences are read several times per chat turn, changes are broadcast to every node so the TTL only bounds
+     * staleness if an invalidation is missed.
+     */
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
+    private static final long CACHE_MAXIMUM_SIZE = 10_000;
+
     private final UserPreferencesRepository userPreferencesRepository;
+    private final UserPreferencesInvalidationPublisher userPreferencesInvalidationPublisher;
+
+    private final Cache<UUID, UserPreferences> preferencesCache = Caffeine.newBuilder()
+            .maximumSize(CACHE_MAXIMUM_SIZE)
+            .expireAfterWrite(CACHE_TTL)
+            .build();
+
+    /**
+     * Bumped by every eviction. A read only fills the cache when no eviction happened while it was loading, so a
+     * load racing an update cannot put the old row back after the update evicted it.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    //A chat never changes owner, so this mapping never needs invalidating
+    private final Cache<UUID, UUID> chatOwnerCache = Caffeine.newBuilder()
+            .maximumSize(CACHE_MAXIMUM_SIZE)
+            .expireAfterAccess(CACHE_TTL)
+            .build();
 
     @Value("${spring.ai.ollama.chat.model}")
     private String chatModel;
@@ -26,13 +59,23 @@ public class UserPreferencesService {
     @Value("${atlassian.service.account.user.id}")
     private UUID serviceAccountUserId;
 
-    public UserPreferencesService(UserPreferencesRepository userPreferencesRepository) {
+    public UserPreferencesService(UserPreferencesRepository userPreferencesRepository,
+                                  UserPreferencesInvalidationPublisher userPreferencesInvalidationPublisher) {
         this.userPreferencesRepository = userPreferencesRepository;
+        this.userPreferencesInvalidationPublisher = userPreferencesInvalidationPublisher;
     }
 
     public UserPreferences get(UUID userId) {
+        UserPreferences cached = preferencesCache.getIfPresent(userId);
+
+        if (cached != null) {
+            return cached.copy();
+        }
+
         log.debug("Getting user preferences for user ID: {}", userId);
 
+        long loadedGeneration = generation.get();
+
         UserPreferences userPreferences = userPreferencesRepository.findByUserId(userId)
                 .orElseGet(() -> {
                     UserPreferences newPreferences = new UserPreferences();
@@ -41,13 +84,41 @@ public class UserPreferencesService {
                     return save(userId, newPreferences);
                 });
 
-        boolean hasAtlassianToken = userPreferences.getAtlassianAccessToken() != null;
+        userPreferences.setAtlassianAuthentication(userPreferences.hasAtlassianAccessToken());
+
+        UserPreferences loaded = userPreferences.copy();
+
+        preferencesCache.asMap().compute(userId, (_, current) -> generation.get() == loadedGeneration ? loaded : current);
 
-        userPreferences.setAtlassianAuthentication(hasAtlassianToken);
-        
         return userPreferences;
     }
 
+    /**
+     * Preferences of the user who owns the chat.
+     */
+    public UserPreferences getByChatId(UUID chatId) {
+        UUID userId = chatOwnerCache.get(chatId, key -> userPreferencesRepository.findUserIdByChatId(key).orElse(null));
+
+        if (userId == null) {
+            throw new IllegalStateException("User preferences not found for chatId: " + chatId);
+        }
+
+        return get(userId);
+    }
+
+    /**
+     * Drops this node's cached copy, the next read goes to the database.
+     */
+    public void evict(UUID userId) {
+        generation.incrementAndGet();
+        preferencesCache.invalidate(userId);
+    }
+
+    public void evictAll() {
+        generation.incrementAndGet();
+        preferencesCache.invalidateAll();
+    }
+
     public List<UserPreferences> findAll() {
         return userPreferencesRepository.findAll();
     }
@@ -59,7 +130,11 @@ public class UserPreferencesService {
         userPreferences.setCreated(ZonedDateTime.now());
         userPreferences.setUpdated(ZonedDateTime.now());
 
-        return userPreferencesRepository.saveAndFlush(userPreferences);
+        UserPreferences saved = userPreferencesRepository.saveAndFlush(userPreferences);
+
+        invalidate(userId);
+
+        return saved;
     }
 
     public UserPreferences update(UUID userId, UserPreferences userPreferences) {
@@ -67,16 +142,17 @@ public class UserPreferencesService {
         userPreferences.setUserId(userId);
         userPreferences.setUpdated(ZonedDateTime.now());
 
-        AtlassianAccessToken atlassianAccessToken = userPreferences.getAtlassianAccessToken();
-
         //Ensure that when updating user preferences, the token is preserved
-        if (atlassianAccessToken == null) {
+        if (!userPreferences.hasAtlassianAccessToken()) {
             UserPreferences existingPreferences = get(userId);
-            AtlassianAccessToken existingToken = existingPreferences.getAtlassianAccessToken();
-            userPreferences.setAtlassianAccessToken(existingToken);
+            userPreferences.copyAtlassianAccessToken(existingPreferences);
         }
 
-        return userPreferencesRepository.save(userPreferences);
+        UserPreferences updated = userPreferencesRepository.save(userPreferences);
+
+        invalidate(userId);
+
+        return updated;
     }
 
     public void save(UUID userId, AtlassianAccessToken atlassianAccessToken) {
@@ -109,4 +185,26 @@ public class UserPreferencesService {
     public UserPreferences serviceAccount() {
         return get(serviceAccountUserId);
     }
+
+    /**
+     * Evicts here and on every other node. Inside a transaction this waits for the commit, so a read in between
+     * cannot cache the row being replaced.
+     */
+    private void invalidate(UUID userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(userId);
+                }
+            });
+        } else {
+            invalidateNow(userId);
+        }
+    }
+
+    private void invalidateNow(UUID userId) {
+        evict(userId);
+        userPreferencesInvalidationPublisher.publish(userId);
+    }
 }
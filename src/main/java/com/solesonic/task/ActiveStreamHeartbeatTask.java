@@ -0,0 +1,54 @@
+package com.solesonic.task;
+
+import com.solesonic.service.redis.ActiveStreamTracker;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps this node's open chat streams counted as live, streams of a node that stops heart-beating age out.
+ * <p>
+ * Runs on its own thread rather than the shared scheduler, so a long scan or compaction can never delay it past the
+ * liveness window and let the ETL throttle miss chat load. Chat nodes heartbeat whether they train or not.
+ */
+@Component
+public class ActiveStreamHeartbeatTask {
+    private static final Logger log = LoggerFactory.getLogger(ActiveStreamHeartbeatTask.class);
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(2);
+
+    private final ActiveStreamTracker activeStreamTracker;
+    private final ScheduledExecutorService streamHeartbeat;
+
+    public ActiveStreamHeartbeatTask(ActiveStreamTracker activeStreamTracker) {
+        this.activeStreamTracker = activeStreamTracker;
+        this.streamHeartbeat = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("chat-stream-heartbeat").factory());
+    }
+
+    @PostConstruct
+    public void start() {
+        streamHeartbeat.scheduleWithFixedDelay(this::heartbeat,
+                ActiveStreamTracker.HEARTBEAT_SECONDS, ActiveStreamTracker.HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    //Catches everything, an exception escaping a periodic task would cancel its later runs
+    public void heartbeat() {
+        try {
+            activeStreamTracker.heartbeat().block(TIMEOUT);
+        } catch (RuntimeException e) {
+            log.warn("Unable to refresh live chat streams: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamHeartbeat.shutdownNow();
+    }
+}
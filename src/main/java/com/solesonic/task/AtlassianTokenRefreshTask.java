@@ -0,0 +1,89 @@
+package com.solesonic.task;
+
+import com.solesonic.model.atlassian.auth.AtlassianAccessToken;
+import com.solesonic.service.atlassian.AtlassianTokenRefreshService;
+import com.solesonic.service.redis.ActiveStreamTracker;
+import com.solesonic.service.user.UserPreferencesService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes Atlassian tokens for the service account and recently active users before they expire,
+ * so Confluence scans and Jira tool calls never pay for an OAuth round trip on the request path.
+ */
+@Component
+@ConditionalOnProperty(name = "atlassian.token.refresh.task.enabled", havingValue = "true")
+public class AtlassianTokenRefreshTask {
+    private static final Logger log = LoggerFactory.getLogger(AtlassianTokenRefreshTask.class);
+
+    private final AtlassianTokenRefreshService atlassianTokenRefreshService;
+    private final UserPreferencesService userPreferencesService;
+    private final ActiveStreamTracker activeStreamTracker;
+
+    @Value("${atlassian.service.account.user.id}")
+    private UUID serviceAccountUserId;
+
+    @Value("${atlassian.token.refresh.task.active-window-minutes:30}")
+    private long activeWindowMinutes;
+
+    @Value("${atlassian.token.refresh.task.refresh-ahead-seconds:300}")
+    private long refreshAheadSeconds;
+
+    public AtlassianTokenRefreshTask(AtlassianTokenRefreshService atlassianTokenRefreshService,
+                                     UserPreferencesService userPreferencesService,
+                                     ActiveStreamTracker activeStreamTracker) {
+        this.atlassianTokenRefreshService = atlassianTokenRefreshService;
+        this.userPreferencesService = userPreferencesService;
+        this.activeStreamTracker = activeStreamTracker;
+    }
+
+    @Scheduled(initialDelay = 30, fixedRateString = "${atlassian.token.refresh.task.interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void refreshTokens() {
+        Duration refreshAhead = Duration.ofSeconds(refreshAheadSeconds);
+
+        Set<UUID> userIds = new LinkedHashSet<>();
+        userIds.add(serviceAccountUserId);
+
+        List<UUID> recentlyActive = activeStreamTracker.recentlyActive(Duration.ofMinutes(activeWindowMinutes))
+                .collectList()
+                .blockOptional()
+                .orElse(List.of());
+
+        userIds.addAll(recentlyActive);
+
+        log.debug("Checking Atlassian tokens for {} users", userIds.size());
+
+        int refreshed = 0;
+
+        for (UUID userId : userIds) {
+            try {
+                AtlassianAccessToken atlassianAccessToken = userPreferencesService.get(userId).getAtlassianAccessToken();
+
+                //Users who never connected Atlassian have nothing to refresh
+                if (atlassianAccessToken == null || !atlassianAccessToken.expiresWithin(refreshAhead)) {
+                    continue;
+                }
+
+                atlassianTokenRefreshService.refreshAhead(userId, refreshAhead);
+                refreshed++;
+            } catch (Exception exception) {
+                log.warn("Failed to refresh Atlassian token for user {}: {}", userId, exception.getMessage());
+            }
+        }
+
+        if (refreshed > 0) {
+            log.info("Proactively refreshed {} Atlassian tokens", refreshed);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.solesonic.task;
 
 import com.solesonic.service.atlassian.ConfluenceTrainingService;
+import com.solesonic.service.atlassian.ConfluenceWebhookService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -15,14 +16,26 @@ public class ConfluenceSchedulingTask {
     private static final Logger log = LoggerFactory.getLogger(ConfluenceSchedulingTask.class);
 
     private final ConfluenceTrainingService confluenceTrainingService;
+    private final ConfluenceWebhookService confluenceWebhookService;
 
-    public ConfluenceSchedulingTask(ConfluenceTrainingService confluenceTrainingService) {
+    public ConfluenceSchedulingTask(ConfluenceTrainingService confluenceTrainingService,
+                                    ConfluenceWebhookService confluenceWebhookService) {
         this.confluenceTrainingService = confluenceTrainingService;
+        this.confluenceWebhookService = confluenceWebhookService;
     }
 
-    @Scheduled(fixedRate = 5, timeUnit = TimeUnit.HOURS)
+    /**
+     * Webhooks keep rag current, this low-frequency pass lists every page to reconcile edits and deletions they
+     * missed.
+     */
+    @Scheduled(fixedRateString = "${confluence.training.reconcile-hours:24}", timeUnit = TimeUnit.HOURS)
     public void scanConfluence() {
-        log.debug("Scanning confluence...");
-        confluenceTrainingService.pageScan();
+        log.debug("Reconciling confluence...");
+        confluenceTrainingService.reconcile();
+    }
+
+    @Scheduled(initialDelay = 30, fixedDelayString = "${confluence.webhook.drain-interval-seconds:10}", timeUnit = TimeUnit.SECONDS)
+    public void drainWebhookEvents() {
+        confluenceWebhookService.drain();
     }
 }
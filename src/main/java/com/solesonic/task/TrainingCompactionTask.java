@@ -0,0 +1,31 @@
+package com.solesonic.task;
+
+import com.solesonic.service.rag.TrainingDocumentCompactionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+@ConditionalOnProperty(name = "training.compaction.enabled", havingValue = "true")
+public class TrainingCompactionTask {
+    private static final Logger log = LoggerFactory.getLogger(TrainingCompactionTask.class);
+
+    private final TrainingDocumentCompactionService trainingDocumentCompactionService;
+
+    public TrainingCompactionTask(TrainingDocumentCompactionService trainingDocumentCompactionService) {
+        this.trainingDocumentCompactionService = trainingDocumentCompactionService;
+    }
+
+    /**
+     * Every Confluence edit replaces a document, this pass frees their content once the retention window has passed.
+     */
+    @Scheduled(initialDelay = 1, fixedDelayString = "${training.compaction.interval-hours:24}", timeUnit = TimeUnit.HOURS)
+    public void compact() {
+        log.debug("Compacting training documents...");
+        trainingDocumentCompactionService.compact();
+    }
+}
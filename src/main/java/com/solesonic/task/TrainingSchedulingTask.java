@@ -1,28 +1,142 @@
 package com.solesonic.task;
 
-import com.solesonic.service.ollama.StatusHistoryService;
+import com.solesonic.model.training.TrainingJob;
+import com.solesonic.service.etl.EtlThrottle;
+import com.solesonic.service.etl.TrainingJobService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Claims queued training jobs for a fixed pool of workers on this node and keeps their leases alive.
+ * <p>
+ * Heartbeats, the reaper and the chat load sampler run on their own thread rather than the shared scheduler, so a
+ * long scan or compaction can never delay a heartbeat past the lease and hand a running job to another node, nor
+ * leave the throttle stuck in the mode it was last sampled in.
+ */
 @Component
 @ConditionalOnProperty(name = "training.task.enabled", havingValue = "true")
 public class TrainingSchedulingTask {
     private static final Logger log = LoggerFactory.getLogger(TrainingSchedulingTask.class);
 
-    private final StatusHistoryService statusHistoryService;
+    private final TrainingJobService trainingJobService;
+    private final EtlThrottle etlThrottle;
+    private final int workerCount;
+    private final String leaseOwner = "node-" + UUID.randomUUID();
+    private final ExecutorService workers;
+    private final Semaphore idleWorkers;
+    private final Set<UUID> runningJobs = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService trainingControl;
+    private final long heartbeatSeconds;
+    private final long reapIntervalSeconds;
+    private final long sampleSeconds;
 
-    public TrainingSchedulingTask(StatusHistoryService statusHistoryService) {
-        this.statusHistoryService = statusHistoryService;
+    public TrainingSchedulingTask(TrainingJobService trainingJobService,
+                                  EtlThrottle etlThrottle,
+                                  @Value("${training.workers:2}") int workerCount,
+                                  @Value("${training.jobs.heartbeat-seconds:30}") long heartbeatSeconds,
+                                  @Value("${training.jobs.reap-interval-seconds:60}") long reapIntervalSeconds,
+                                  @Value("${training.throttle.sample-seconds:5}") long sampleSeconds) {
+        this.trainingJobService = trainingJobService;
+        this.etlThrottle = etlThrottle;
+        this.workerCount = workerCount;
+        this.heartbeatSeconds = heartbeatSeconds;
+        this.reapIntervalSeconds = reapIntervalSeconds;
+        this.sampleSeconds = sampleSeconds;
+        this.workers = Executors.newFixedThreadPool(workerCount, Thread.ofPlatform().name("training-worker-", 0).factory());
+        this.idleWorkers = new Semaphore(workerCount);
+        this.trainingControl = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("training-control").factory());
+
+        log.info("Training dispatcher {} started with {} workers", leaseOwner, workerCount);
+    }
+
+    @PostConstruct
+    public void start() {
+        trainingControl.scheduleWithFixedDelay(() -> run("heartbeat", this::heartbeat),
+                heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        trainingControl.scheduleWithFixedDelay(() -> run("lease reaper", this::reapExpiredLeases),
+                60, reapIntervalSeconds, TimeUnit.SECONDS);
+        trainingControl.scheduleWithFixedDelay(() -> run("chat load sample", this::sampleChatLoad),
+                0, sampleSeconds, TimeUnit.SECONDS);
     }
 
-    @Scheduled(fixedRate = 5, timeUnit = TimeUnit.SECONDS)
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.SECONDS)
     public void embedDocuments() {
         log.debug("Looking for queued documents");
-        statusHistoryService.processQueued();
+
+        //under chat load fewer jobs are claimed, the rest wait in the queue until load drops
+        while (runningJobs.size() < etlThrottle.allowedWorkers(workerCount) && idleWorkers.tryAcquire()) {
+            Optional<TrainingJob> claimed;
+
+            try {
+                claimed = trainingJobService.claim(leaseOwner);
+            } catch (RuntimeException e) {
+                idleWorkers.release();
+                throw e;
+            }
+
+            if (claimed.isEmpty()) {
+                idleWorkers.release();
+                return;
+            }
+
+            TrainingJob trainingJob = claimed.get();
+            runningJobs.add(trainingJob.getId());
+
+            workers.execute(() -> {
+                try {
+                    trainingJobService.process(trainingJob);
+                } finally {
+                    runningJobs.remove(trainingJob.getId());
+                    idleWorkers.release();
+                }
+            });
+        }
+    }
+
+    public void sampleChatLoad() {
+        etlThrottle.sample();
+    }
+
+    public void heartbeat() {
+        trainingJobService.heartbeat(leaseOwner, List.copyOf(runningJobs));
+    }
+
+    public void reapExpiredLeases() {
+        trainingJobService.reapExpiredLeases();
+    }
+
+    //An exception escaping a periodic task would cancel its later runs
+    private static void run(String name, Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            log.error("Training {} failed", name, e);
+        }
+    }
+
+    /**
+     * Interrupted workers record a retry, jobs still leased when the process dies are retried once their lease lapses.
+     */
+    @PreDestroy
+    public void shutdown() {
+        trainingControl.shutdownNow();
+        workers.shutdownNow();
     }
 }
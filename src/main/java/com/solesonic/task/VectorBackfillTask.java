@@ -0,0 +1,35 @@
+package com.solesonic.task;
+
+import com.solesonic.service.rag.VectorStoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills in half precision embeddings for rows written before they existed, one bounded batch per run so a large
+ * backlog is spread over many runs instead of holding the scheduler thread. New rows get theirs on insert.
+ */
+@Component
+@ConditionalOnProperty(name = "rag.vector-storage.backfill-enabled", havingValue = "true")
+public class VectorBackfillTask {
+    private static final Logger log = LoggerFactory.getLogger(VectorBackfillTask.class);
+
+    private final VectorStoreService vectorStoreService;
+
+    public VectorBackfillTask(VectorStoreService vectorStoreService) {
+        this.vectorStoreService = vectorStoreService;
+    }
+
+    @Scheduled(initialDelay = 60, fixedDelayString = "${rag.vector-storage.backfill-interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void backfillHalfPrecision() {
+        int backfilled = vectorStoreService.backfillHalfPrecision();
+
+        if (backfilled > 0) {
+            log.info("Backfilled half precision embeddings for {} vectors", backfilled);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+-- Keeps only the HNSW index the configured rag.vector-storage.mode searches. The mode is a placeholder, so this
+-- migration is applied again on the first start after the mode changes.
+do
+$$
+    begin
+        if upper('${VECTOR_STORAGE_MODE}') = 'HALF' then
+            -- rows the backfill has not reached would be invisible to HALF searches
+            update public.vector_store
+            set embedding_half = cast(embedding as halfvec(1024))
+            where embedding_half is null;
+
+            create index if not exists idx_vector_store_embedding_half
+                on public.vector_store using hnsw (embedding_half public.halfvec_cosine_ops);
+
+            drop index if exists public.spring_ai_vector_index;
+        else
+            create index if not exists spring_ai_vector_index
+                on public.vector_store using hnsw (embedding public.vector_cosine_ops);
+
+            drop index if exists public.idx_vector_store_embedding_half;
+        end if;
+    end
+$$;
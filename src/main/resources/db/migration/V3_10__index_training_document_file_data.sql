@@ -0,0 +1,4 @@
+-- lets compaction find large objects no training document references
+create index idx_training_document_file_data
+    on public.training_document (file_data)
+    where file_data is not null;
@@ -0,0 +1,7 @@
+-- indexed reference to the owning training document, so its chunks can be deleted with one statement
+alter table public.vector_store
+    add column training_document_id uuid
+        generated always as ((metadata ->> 'TRAINING_DOCUMENT_ID')::uuid) stored;
+
+create index idx_vector_store_training_document_id
+    on public.vector_store (training_document_id);
@@ -0,0 +1,34 @@
+-- the generated reference depends on metadata and has to be recreated around the type change
+drop index public.idx_vector_store_training_document_id;
+
+alter table public.vector_store
+    drop column training_document_id;
+
+alter table public.vector_store
+    alter column metadata type jsonb using metadata::jsonb;
+
+alter table public.vector_store
+    add column training_document_id uuid
+        generated always as ((metadata ->> 'TRAINING_DOCUMENT_ID')::uuid) stored;
+
+-- chunks written before the source was stamped take it from their training document
+update public.vector_store vs
+set metadata = vs.metadata || jsonb_build_object('DOCUMENT_SOURCE', td.document_source)
+from public.training_document td
+where td.id = vs.training_document_id
+  and td.document_source is not null
+  and not vs.metadata ? 'DOCUMENT_SOURCE';
+
+alter table public.vector_store
+    add column document_source varchar(32)
+        generated always as (metadata ->> 'DOCUMENT_SOURCE') stored;
+
+create index idx_vector_store_training_document_id
+    on public.vector_store (training_document_id);
+
+create index idx_vector_store_document_source
+    on public.vector_store (document_source);
+
+-- serves the jsonpath filter expressions Spring AI sends for any other metadata key
+create index idx_vector_store_metadata
+    on public.vector_store using gin (metadata jsonb_path_ops);
@@ -0,0 +1,9 @@
+-- half precision copy of the embedding, filled by new writes and the backfill task. Its HNSW index is only built in
+-- HALF mode, by R__vector_store_search_index
+alter table public.vector_store
+    add column embedding_half halfvec(1024);
+
+-- rows the backfill has not reached yet, empty once it has caught up
+create index idx_vector_store_embedding_half_missing
+    on public.vector_store (id)
+    where embedding_half is null;
@@ -0,0 +1,7 @@
+-- lexical side of hybrid retrieval, matches exact identifiers the embeddings blur
+alter table public.vector_store
+    add column content_tsv tsvector
+        generated always as (to_tsvector('english', coalesce(content, ''))) stored;
+
+create index idx_vector_store_content_tsv
+    on public.vector_store using gin (content_tsv);
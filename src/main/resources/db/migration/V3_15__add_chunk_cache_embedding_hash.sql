@@ -0,0 +1,18 @@
+-- embeddings are reused only for identical embed input: chunk text plus its keywords and own and neighbour summaries.
+-- identical text with different neighbours gets one row per embed input, so rows are keyed by the hash of that input.
+-- rows cached before this column existed embedded per-document metadata too and can never be reused, so they go
+delete from public.chunk_cache;
+
+alter table public.chunk_cache
+    drop constraint chunk_cache_pkey;
+
+alter table public.chunk_cache
+    add column embedding_hash varchar(64) not null primary key;
+
+-- enrichment is still looked up by chunk text alone
+create index idx_chunk_cache_content_hash
+    on public.chunk_cache (content_hash);
+
+-- serves compaction of entries no ingest has reused for a while
+create index idx_chunk_cache_last_used
+    on public.chunk_cache (last_used);
@@ -0,0 +1,8 @@
+create table public.confluence_scan_state
+(
+    id              varchar(255) not null primary key,
+    high_water_mark timestamp(6) with time zone,
+    updated         timestamp(6) with time zone
+);
+
+alter table public.confluence_scan_state owner to "${DB_OWNER}";
@@ -0,0 +1,2 @@
+CREATE INDEX idx_training_document_confluence_page_version
+    ON public.training_document ((metadata->>'CONFLUENCE_PAGE_ID'), ((metadata->>'CONFLUENCE_PAGE_VERSION')::int) DESC);
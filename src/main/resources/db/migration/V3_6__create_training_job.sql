@@ -0,0 +1,37 @@
+create table public.training_job
+(
+    id                   uuid         not null primary key,
+    training_document_id uuid         not null,
+    status               varchar(255) not null,
+    attempts             integer      not null default 0,
+    lease_owner          varchar(255),
+    lease_expires_at     timestamp(6) with time zone,
+    available_at         timestamp(6) with time zone not null default now(),
+    last_error           text,
+    created              timestamp(6) with time zone,
+    updated              timestamp(6) with time zone
+);
+
+alter table public.training_job owner to "${DB_OWNER}";
+
+create index training_job_queued_idx
+    on public.training_job (available_at)
+    where status = 'QUEUED';
+
+create index training_job_running_idx
+    on public.training_job (lease_expires_at)
+    where status = 'RUNNING';
+
+create unique index training_job_active_document_idx
+    on public.training_job (training_document_id)
+    where status in ('QUEUED', 'RUNNING');
+
+-- Anything queued or interrupted mid-run under the old poller is picked up again by the job queue
+insert into public.training_job (id, training_document_id, status, attempts, available_at, created, updated)
+select gen_random_uuid(), latest.document_id, 'QUEUED', 0, now(), now(), now()
+from (select distinct on (sh.document_id) sh.document_id, sh.document_status
+      from public.status_history sh
+      order by sh.document_id, sh.timestamp desc) latest
+         join public.training_document td on td.id = latest.document_id
+where latest.document_status in
+      ('QUEUED', 'IN_PROGRESS', 'PREPARING', 'KEYWORD_ENRICHING', 'METADATA_ENRICHING', 'TOKEN_SPLITTING');
@@ -0,0 +1,16 @@
+alter table public.training_document
+    add column current_status varchar(255);
+
+update public.training_document td
+set current_status = latest.document_status
+from (select distinct on (sh.document_id) sh.document_id, sh.document_status
+      from public.status_history sh
+      order by sh.document_id, sh.timestamp desc) latest
+where latest.document_id = td.id;
+
+create index idx_training_document_current_status
+    on public.training_document (current_status);
+
+-- status_history is an audit trail now, this keeps per-document history reads cheap
+create index idx_status_history_document_timestamp
+    on public.status_history (document_id, timestamp desc);
@@ -0,0 +1,11 @@
+create table public.chunk_cache
+(
+    content_hash    varchar(64)  not null primary key,
+    embedding_model varchar(255) not null,
+    enrichment      json,
+    embedding       vector(1024) not null,
+    created         timestamp(6) with time zone not null default now(),
+    last_used       timestamp(6) with time zone not null default now()
+);
+
+alter table public.chunk_cache owner to "${DB_OWNER}";
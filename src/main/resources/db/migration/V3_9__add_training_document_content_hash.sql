@@ -0,0 +1,11 @@
+alter table public.training_document
+    add column content_hash varchar(64);
+
+-- uploads were saved without a source before
+update public.training_document
+set document_source = 'USER'
+where document_source is null;
+
+create unique index idx_training_document_user_content_hash
+    on public.training_document (content_hash)
+    where document_source = 'USER';
@@ -0,0 +1,99 @@
+package com.solesonic.config.atlassian;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AtlassianRateLimitFilterTest {
+
+    private final ClientRequest request = ClientRequest.create(HttpMethod.GET,
+            URI.create("https://api.atlassian.com/ex/confluence/cloud-id/wiki/api/v2/pages")).build();
+
+    private AtlassianRateLimitProperties rateLimitProperties;
+    private AtlassianRateLimitFilter atlassianRateLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        rateLimitProperties = new AtlassianRateLimitProperties();
+        rateLimitProperties.setBaseDelayMs(1);
+        rateLimitProperties.setMaxDelayMs(5);
+        rateLimitProperties.setMaxRetries(2);
+
+        atlassianRateLimitFilter = new AtlassianRateLimitFilter(rateLimitProperties);
+    }
+
+    @Test
+    void filter_whenThrottled_retriesUntilSuccess() {
+        ExchangeFunction next = mock(ExchangeFunction.class);
+        when(next.exchange(any())).thenReturn(
+                Mono.just(ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "0").build()),
+                Mono.just(ClientResponse.create(HttpStatus.OK).build()));
+
+        StepVerifier.create(atlassianRateLimitFilter.filter(request, next))
+                .assertNext(response -> assertThat(response.statusCode()).isEqualTo(HttpStatus.OK))
+                .verifyComplete();
+
+        verify(next, times(2)).exchange(any());
+    }
+
+    @Test
+    void filter_whenRetriesExhausted_returnsThrottledResponse() {
+        ExchangeFunction next = mock(ExchangeFunction.class);
+        when(next.exchange(any())).thenAnswer(_ -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()));
+
+        StepVerifier.create(atlassianRateLimitFilter.filter(request, next))
+                .assertNext(response -> assertThat(response.statusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE))
+                .verifyComplete();
+
+        verify(next, times(rateLimitProperties.getMaxRetries() + 1)).exchange(any());
+    }
+
+    @Test
+    void filter_whenPostUnavailable_doesNotRetry() {
+        ClientRequest createIssue = ClientRequest.create(HttpMethod.POST,
+                URI.create("https://api.atlassian.com/ex/jira/cloud-id/rest/api/3/issue")).build();
+
+        ExchangeFunction next = mock(ExchangeFunction.class);
+        when(next.exchange(any())).thenAnswer(_ -> Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build()));
+
+        StepVerifier.create(atlassianRateLimitFilter.filter(createIssue, next))
+                .assertNext(response -> assertThat(response.statusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE))
+                .verifyComplete();
+
+        verify(next, times(1)).exchange(any());
+    }
+
+    @Test
+    void filter_whenPostRateLimited_retries() {
+        ClientRequest createIssue = ClientRequest.create(HttpMethod.POST,
+                URI.create("https://api.atlassian.com/ex/jira/cloud-id/rest/api/3/issue")).build();
+
+        ExchangeFunction next = mock(ExchangeFunction.class);
+        when(next.exchange(any())).thenReturn(
+                Mono.just(ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", "0").build()),
+                Mono.just(ClientResponse.create(HttpStatus.CREATED).build()));
+
+        StepVerifier.create(atlassianRateLimitFilter.filter(createIssue, next))
+                .assertNext(response -> assertThat(response.statusCode()).isEqualTo(HttpStatus.CREATED))
+                .verifyComplete();
+
+        verify(next, times(2)).exchange(any());
+    }
+
+    @Test
+    void siteKey_usesCloudId() {
+        assertThat(AtlassianRateLimitFilter.siteKey(request)).isEqualTo("cloud-id");
+    }
+}
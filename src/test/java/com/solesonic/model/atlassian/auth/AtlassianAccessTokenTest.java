@@ -2,6 +2,7 @@ package com.solesonic.model.atlassian.auth;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -76,4 +77,15 @@ class AtlassianAccessTokenTest {
                 ZonedDateTime.now().minusSeconds(3600 - 11), null, null, null); // expires in 11 seconds
         assertThat(token2.isExpired()).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void expiresWithin_whenInsideRefreshWindow_returnsTrue() {
+        AtlassianAccessToken token = new AtlassianAccessToken(
+                null, null, null, null, null, 3600, false,
+                ZonedDateTime.now().minusMinutes(58), null, null, null); // expires in 2 minutes
+
+        assertThat(token.isExpired()).isFalse();
+        assertThat(token.expiresWithin(Duration.ofMinutes(5))).isTrue();
+        assertThat(token.expiresWithin(Duration.ofMinutes(1))).isFalse();
+    }
+}
@@ -0,0 +1,41 @@
+package com.solesonic.model.atlassian.auth;
+
+import com.solesonic.security.crypto.AtlassianTokenCipher;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class EncryptedAtlassianAccessTokenTest {
+
+    private final AtlassianTokenCipher cipher = mock(AtlassianTokenCipher.class);
+
+    @Test
+    void encrypted_decryptsOnlyOnFirstAccess() {
+        byte[] encrypted = {1, 2, 3};
+        AtlassianAccessToken token = new AtlassianAccessToken(
+                null, "access", "refresh", null, null, 3600, false,
+                ZonedDateTime.now(), null, null, null);
+
+        when(cipher.decrypt(encrypted)).thenReturn(token);
+
+        EncryptedAtlassianAccessToken holder = EncryptedAtlassianAccessToken.encrypted(encrypted, cipher);
+        verifyNoInteractions(cipher);
+
+        assertThat(holder.decrypt()).isEqualTo(token);
+        assertThat(holder.decrypt()).isEqualTo(token);
+        verify(cipher, times(1)).decrypt(encrypted);
+    }
+
+    @Test
+    void encrypt_whenLoadedFromDatabase_reusesCiphertext() {
+        byte[] encrypted = {1, 2, 3};
+
+        EncryptedAtlassianAccessToken holder = EncryptedAtlassianAccessToken.encrypted(encrypted, cipher);
+
+        assertThat(holder.encrypt(cipher)).isSameAs(encrypted);
+        verifyNoInteractions(cipher);
+    }
+}
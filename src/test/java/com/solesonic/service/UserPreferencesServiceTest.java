@@ -2,6 +2,7 @@ package com.solesonic.service;
 
 import com.solesonic.model.atlassian.auth.AtlassianAccessToken;
 import com.solesonic.model.user.UserPreferences;
+import com.solesonic.redis.publisher.UserPreferencesInvalidationPublisher;
 import com.solesonic.repository.UserPreferencesRepository;
 import com.solesonic.service.user.UserPreferencesService;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,6 +21,7 @@ import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -29,6 +31,8 @@ public class UserPreferencesServiceTest {
     @Mock
     private UserPreferencesRepository userPreferencesRepository;
 
+    @Mock
+    private UserPreferencesInvalidationPublisher userPreferencesInvalidationPublisher;
 
     @InjectMocks
     private UserPreferencesService userPreferencesService;
@@ -148,4 +152,34 @@ public class UserPreferencesServiceTest {
         assertThat(result.getUserId()).isEqualTo(userId);
         verify(userPreferencesRepository).save(any(UserPreferences.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetCachesUntilUpdated() {
+        when(userPreferencesRepository.findByUserId(userId)).thenReturn(Optional.of(userPreferences));
+        when(userPreferencesRepository.save(any(UserPreferences.class))).thenReturn(userPreferences);
+
+        userPreferencesService.get(userId);
+        userPreferencesService.get(userId);
+        verify(userPreferencesRepository, times(1)).findByUserId(userId);
+
+        userPreferencesService.update(userId, userPreferences);
+        verify(userPreferencesInvalidationPublisher).publish(userId);
+
+        userPreferencesService.get(userId);
+        verify(userPreferencesRepository, times(2)).findByUserId(userId);
+    }
+
+    @Test
+    void testGetDoesNotCacheLoadRacingAnEviction() {
+        when(userPreferencesRepository.findByUserId(userId)).thenAnswer(_ -> {
+            userPreferencesService.evict(userId);
+            return Optional.of(userPreferences);
+        }).thenReturn(Optional.of(userPreferences));
+
+        userPreferencesService.get(userId);
+        userPreferencesService.get(userId);
+        userPreferencesService.get(userId);
+
+        verify(userPreferencesRepository, times(2)).findByUserId(userId);
+    }
+}
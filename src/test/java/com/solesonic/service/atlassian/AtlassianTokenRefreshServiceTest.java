@@ -0,0 +1,273 @@
+package com.solesonic.service.atlassian;
+
+import com.solesonic.config.atlassian.TokenBrokerProperties;
+import com.solesonic.exception.atlassian.AtlassianTokenException;
+import com.solesonic.exception.atlassian.JiraException;
+import com.solesonic.model.atlassian.auth.AtlassianAccessToken;
+import com.solesonic.model.user.UserPreferences;
+import com.solesonic.service.user.UserPreferencesService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AtlassianTokenRefreshServiceTest {
+
+    @Mock
+    private UserPreferencesService userPreferencesService;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private WebClient authWebClient;
+
+    private AtlassianTokenRefreshService atlassianTokenRefreshService;
+
+    private TokenBrokerProperties tokenBrokerProperties;
+
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = UUID.randomUUID();
+
+        tokenBrokerProperties = new TokenBrokerProperties();
+        tokenBrokerProperties.getLock().setWaitSeconds(1);
+        tokenBrokerProperties.getLock().setPollIntervalMs(10);
+        tokenBrokerProperties.getRetry().setBaseDelayMs(1);
+
+        atlassianTokenRefreshService = new AtlassianTokenRefreshService(userPreferencesService,
+                stringRedisTemplate,
+                tokenBrokerProperties,
+                authWebClient);
+    }
+
+    @Test
+    void accessToken_whenNotExpired_doesNotRefresh() {
+        AtlassianAccessToken validToken = token(ZonedDateTime.now());
+        when(userPreferencesService.get(userId)).thenReturn(preferences(validToken));
+
+        AtlassianAccessToken result = atlassianTokenRefreshService.accessToken(userId);
+
+        assertThat(result).isEqualTo(validToken);
+        verifyNoInteractions(stringRedisTemplate, authWebClient);
+    }
+
+    @Test
+    void accessToken_whenAnotherNodeRefreshes_reusesPersistedToken() {
+        AtlassianAccessToken expiredToken = token(ZonedDateTime.now().minusHours(2));
+        AtlassianAccessToken refreshedToken = token(ZonedDateTime.now());
+
+        when(userPreferencesService.get(userId)).thenReturn(
+                preferences(expiredToken),
+                preferences(expiredToken),
+                preferences(refreshedToken));
+
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+
+        AtlassianAccessToken result = atlassianTokenRefreshService.accessToken(userId);
+
+        assertThat(result).isEqualTo(refreshedToken);
+        verify(valueOperations, times(1)).setIfAbsent(eq("atlassian:token-refresh:lock:" + userId), anyString(), any(Duration.class));
+        verifyNoInteractions(authWebClient);
+    }
+
+    @Test
+    void accessToken_whenLockIsNeverReleased_timesOut() {
+        AtlassianAccessToken expiredToken = token(ZonedDateTime.now().minusHours(2));
+
+        when(userPreferencesService.get(userId)).thenReturn(preferences(expiredToken));
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+
+        assertThatThrownBy(() -> atlassianTokenRefreshService.accessToken(userId))
+                .isInstanceOf(AtlassianTokenException.class)
+                .matches(exception -> ((AtlassianTokenException) exception).isRetriable());
+
+        verifyNoInteractions(authWebClient);
+    }
+
+    @Test
+    void accessToken_whenNoTokenStored_requiresReconnect() {
+        when(userPreferencesService.get(userId)).thenReturn(preferences(null));
+
+        assertThatThrownBy(() -> atlassianTokenRefreshService.accessToken(userId))
+                .isInstanceOf(AtlassianTokenException.class)
+                .matches(exception -> !((AtlassianTokenException) exception).isRetriable());
+    }
+
+    @Test
+    void refresh_whenCalledConcurrentlyForSameUser_requestsTokenOnce() throws Exception {
+        AtomicReference<AtlassianAccessToken> storedToken = new AtomicReference<>(token(ZonedDateTime.now().minusHours(2)));
+
+        when(userPreferencesService.get(userId)).thenAnswer(_ -> preferences(storedToken.get()));
+        doAnswer(invocation -> {
+            storedToken.set(invocation.getArgument(1));
+            return null;
+        }).when(userPreferencesService).update(eq(userId), any(AtlassianAccessToken.class));
+
+        //The mocked lock never contends, only the in-JVM single flight can keep the second caller off the endpoint
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+
+        CountDownLatch requested = new CountDownLatch(1);
+        CountDownLatch respond = new CountDownLatch(1);
+
+        ExchangeFunction tokenEndpoint = mock(ExchangeFunction.class);
+        when(tokenEndpoint.exchange(any())).thenAnswer(_ -> Mono.fromCallable(() -> {
+            requested.countDown();
+            respond.await();
+            return tokenResponse();
+        }));
+
+        AtlassianTokenRefreshService refreshService = refreshService(tokenEndpoint);
+
+        FutureTask<AtlassianAccessToken> first = new FutureTask<>(() -> refreshService.refresh(userId));
+        Thread.ofPlatform().start(first);
+        assertThat(requested.await(5, TimeUnit.SECONDS)).isTrue();
+
+        FutureTask<AtlassianAccessToken> second = new FutureTask<>(() -> refreshService.refresh(userId));
+        Thread secondCaller = Thread.ofPlatform().start(second);
+        awaitWaiting(secondCaller);
+
+        respond.countDown();
+
+        AtlassianAccessToken firstToken = first.get(5, TimeUnit.SECONDS);
+        AtlassianAccessToken secondToken = second.get(5, TimeUnit.SECONDS);
+
+        assertThat(secondToken).isSameAs(firstToken);
+        assertThat(firstToken.accessToken()).isEqualTo("refreshedAccessToken");
+        verify(tokenEndpoint, times(1)).exchange(any());
+        verify(userPreferencesService, times(1)).update(eq(userId), any(AtlassianAccessToken.class));
+    }
+
+    @Test
+    void refresh_whenTokenEndpointIsUnavailableOrThrottled_retriesUntilSuccess() {
+        expiredTokenWithLock();
+
+        ExchangeFunction tokenEndpoint = mock(ExchangeFunction.class);
+        when(tokenEndpoint.exchange(any())).thenReturn(
+                Mono.just(errorResponse(HttpStatus.SERVICE_UNAVAILABLE)),
+                Mono.just(errorResponse(HttpStatus.TOO_MANY_REQUESTS)),
+                Mono.just(tokenResponse()));
+
+        AtlassianAccessToken result = refreshService(tokenEndpoint).refresh(userId);
+
+        assertThat(result.accessToken()).isEqualTo("refreshedAccessToken");
+        verify(tokenEndpoint, times(3)).exchange(any());
+        verify(userPreferencesService).update(eq(userId), any(AtlassianAccessToken.class));
+    }
+
+    @Test
+    void refresh_whenRefreshTokenIsRejected_doesNotRetry() {
+        expiredTokenWithLock();
+
+        ExchangeFunction tokenEndpoint = mock(ExchangeFunction.class);
+        when(tokenEndpoint.exchange(any())).thenAnswer(_ -> Mono.just(errorResponse(HttpStatus.BAD_REQUEST)));
+
+        AtlassianTokenRefreshService refreshService = refreshService(tokenEndpoint);
+
+        assertThatThrownBy(() -> refreshService.refresh(userId))
+                .isInstanceOf(AtlassianTokenException.class)
+                .matches(exception -> !((AtlassianTokenException) exception).isRetriable());
+
+        verify(tokenEndpoint, times(1)).exchange(any());
+        verify(userPreferencesService, never()).update(any(UUID.class), any(AtlassianAccessToken.class));
+    }
+
+    private void expiredTokenWithLock() {
+        when(userPreferencesService.get(userId)).thenReturn(preferences(token(ZonedDateTime.now().minusHours(2))));
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+    }
+
+    //Mirrors the auth client's response handling, non 2xx responses surface as JiraExceptions
+    private AtlassianTokenRefreshService refreshService(ExchangeFunction tokenEndpoint) {
+        WebClient tokenWebClient = WebClient.builder()
+                .baseUrl("https://auth.atlassian.com")
+                .exchangeFunction(tokenEndpoint)
+                .filter((request, next) -> next.exchange(request)
+                        .flatMap(response -> response.statusCode().is2xxSuccessful()
+                                ? Mono.just(response)
+                                : response.bodyToMono(String.class)
+                                        .flatMap(errorBody -> Mono.error(new JiraException(errorBody, response)))))
+                .build();
+
+        return new AtlassianTokenRefreshService(userPreferencesService,
+                stringRedisTemplate,
+                tokenBrokerProperties,
+                tokenWebClient);
+    }
+
+    private static ClientResponse tokenResponse() {
+        return ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"access_token\":\"refreshedAccessToken\",\"refresh_token\":\"rotatedRefreshToken\",\"expires_in\":3600}")
+                .build();
+    }
+
+    private static ClientResponse errorResponse(HttpStatus httpStatus) {
+        return ClientResponse.create(httpStatus)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"error\":\"" + httpStatus.getReasonPhrase() + "\"}")
+                .build();
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (thread.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertThat(thread.getState()).isEqualTo(Thread.State.WAITING);
+    }
+
+    private UserPreferences preferences(AtlassianAccessToken atlassianAccessToken) {
+        UserPreferences userPreferences = new UserPreferences();
+        userPreferences.setUserId(userId);
+        userPreferences.setAtlassianAccessToken(atlassianAccessToken);
+        return userPreferences;
+    }
+
+    private AtlassianAccessToken token(ZonedDateTime created) {
+        return AtlassianAccessToken.builder()
+                .userId(userId)
+                .accessToken(UUID.randomUUID().toString())
+                .refreshToken("refreshToken")
+                .expiresIn(3600)
+                .created(created)
+                .build();
+    }
+}
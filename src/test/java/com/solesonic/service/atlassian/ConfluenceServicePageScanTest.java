@@ -1,27 +1,33 @@
 package com.solesonic.service.atlassian;
 
 import com.solesonic.model.atlassian.confluence.*;
-import com.solesonic.model.atlassian.confluence.*;
+import com.solesonic.model.training.ConfluencePageVersion;
 import com.solesonic.model.training.DocumentStatus;
 import com.solesonic.model.training.TrainingDocument;
-import com.solesonic.model.training.VectorDocument;
+import com.solesonic.repository.atlassian.ConfluenceScanStateRepository;
+import com.solesonic.service.etl.TrainingJobService;
 import com.solesonic.service.rag.TrainingDocumentService;
 import com.solesonic.service.rag.VectorStoreService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.util.HashMap;
+import java.io.InputStream;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.function.Function;
 
-import static com.solesonic.model.training.TrainingDocument.CONFLUENCE_PAGE_VERSION;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatCode;
 import static org.mockito.Mockito.*;
 
@@ -37,9 +43,18 @@ public class ConfluenceServicePageScanTest {
     @Mock
     private VectorStoreService vectorStoreService;
 
+    @Mock
+    private TrainingJobService trainingJobService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @Mock
     private WebClient webClient;
 
+    @Mock
+    private ConfluenceScanStateRepository confluenceScanStateRepository;
+
     @SuppressWarnings("rawtypes")
     @Mock
     private WebClient.RequestHeadersUriSpec requestHeadersUriSpec ;
@@ -52,7 +67,13 @@ public class ConfluenceServicePageScanTest {
 
     @BeforeEach
     public void beforeEach() {
-        confluenceTrainingService = new ConfluenceTrainingService(trainingDocumentService, vectorStoreService, webClient);
+        confluenceTrainingService = new ConfluenceTrainingService(trainingDocumentService,
+                vectorStoreService,
+                trainingJobService,
+                new TransactionTemplate(transactionManager),
+                webClient,
+                confluenceScanStateRepository,
+                2);
     }
 
     @SuppressWarnings("unchecked")
@@ -76,32 +97,25 @@ public class ConfluenceServicePageScanTest {
 
         confluencePagesResponse.setResults(List.of(page));
 
-        TrainingDocument trainingDocument = new TrainingDocument();
-        trainingDocument.setId(TRAINING_DOCUMENT_ID_1);
-
-        Map<String, Object> trainingDocumentMetadata = new HashMap<>();
-        trainingDocumentMetadata.put(CONFLUENCE_PAGE_VERSION, "1");
-
-        trainingDocument.setMetadata(trainingDocumentMetadata);
+        ConfluencePageVersion latestVersion = latestVersion(1);
 
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.exchangeToMono(any())).thenReturn(Mono.just(confluencePagesResponse));
+        //the listing first, then the body of the changed page
+        when(requestHeadersSpec.exchangeToMono(any())).thenReturn(Mono.just(confluencePagesResponse), Mono.just(page));
 
-        when(trainingDocumentService.findByConfluencePageId(CONFLUENCE_PAGE_ID_1))
-                .thenReturn(List.of(trainingDocument));
+        when(trainingDocumentService.latestConfluencePageVersions(List.of(CONFLUENCE_PAGE_ID_1)))
+                .thenReturn(Map.of(CONFLUENCE_PAGE_ID_1, latestVersion));
 
-        VectorDocument vectorDocument = new VectorDocument();
-
-        when(vectorStoreService.findByTrainingDocumentId(TRAINING_DOCUMENT_ID_1))
-                .thenReturn(List.of(vectorDocument));
+        when(vectorStoreService.deleteByTrainingDocumentId(TRAINING_DOCUMENT_ID_1)).thenReturn(1);
 
         assertThatCode(() -> confluenceTrainingService.pageScan()).doesNotThrowAnyException();
 
-        verify(trainingDocumentService, times(1)).findByConfluencePageId(CONFLUENCE_PAGE_ID_1);
-        verify(vectorStoreService, times(1)).findByTrainingDocumentId(TRAINING_DOCUMENT_ID_1);
-        verify(vectorStoreService, times(1)).delete(anyList());
-        verify(trainingDocumentService, times(1)).update(any(), eq(DocumentStatus.REPLACED));
+        verify(trainingDocumentService, times(1)).latestConfluencePageVersions(List.of(CONFLUENCE_PAGE_ID_1));
+        verify(trainingJobService, times(1)).cancel(TRAINING_DOCUMENT_ID_1);
+        verify(vectorStoreService, times(1)).deleteByTrainingDocumentId(TRAINING_DOCUMENT_ID_1);
+        verify(trainingDocumentService, times(1)).replace(eq(TRAINING_DOCUMENT_ID_1), any());
+        verify(requestHeadersSpec, times(2)).exchangeToMono(any());
     }
 
     @SuppressWarnings("unchecked")
@@ -125,26 +139,129 @@ public class ConfluenceServicePageScanTest {
 
         confluencePagesResponse.setResults(List.of(page));
 
-        TrainingDocument trainingDocument = new TrainingDocument();
-        trainingDocument.setId(TRAINING_DOCUMENT_ID_1);
+        ConfluencePageVersion latestVersion = latestVersion(3);
+
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.exchangeToMono(any())).thenReturn(Mono.just(confluencePagesResponse));
+
+        when(trainingDocumentService.latestConfluencePageVersions(List.of(CONFLUENCE_PAGE_ID_1)))
+                .thenReturn(Map.of(CONFLUENCE_PAGE_ID_1, latestVersion));
+
+        assertThatCode(() -> confluenceTrainingService.pageScan()).doesNotThrowAnyException();
+        verify(trainingDocumentService, times(1)).latestConfluencePageVersions(List.of(CONFLUENCE_PAGE_ID_1));
+
+        verify(vectorStoreService, never()).deleteByTrainingDocumentId(any());
+        verify(trainingDocumentService, never()).replace(any(), any());
+        //unchanged pages are never downloaded
+        verify(requestHeadersSpec, times(1)).exchangeToMono(any());
+    }
 
-        Map<String, Object> trainingDocumentMetadata = new HashMap<>();
-        trainingDocumentMetadata.put(CONFLUENCE_PAGE_VERSION, "3");
+    @SuppressWarnings("unchecked")
+    @Test
+    public void pageScan_whenBodyFetchFails_queuesOtherPagesAndHoldsHighWaterMark() {
+        Page newer = page("c_newer", "2026-03-02T10:00:00Z");
+        Page older = page("c_older", "2026-03-01T10:00:00Z");
 
-        trainingDocument.setMetadata(trainingDocumentMetadata);
+        ConfluencePagesResponse confluencePagesResponse = new ConfluencePagesResponse();
+        confluencePagesResponse.setResults(List.of(newer, older));
 
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.exchangeToMono(any())).thenReturn(Mono.just(confluencePagesResponse));
+        when(requestHeadersSpec.exchangeToMono(any())).thenReturn(Mono.just(confluencePagesResponse),
+                Mono.just(newer),
+                Mono.error(new IllegalStateException("page deleted")));
 
-        when(trainingDocumentService.findByConfluencePageId(CONFLUENCE_PAGE_ID_1))
-                .thenReturn(List.of(trainingDocument));
+        when(trainingDocumentService.latestConfluencePageVersions(List.of("c_newer", "c_older"))).thenReturn(Map.of());
 
         assertThatCode(() -> confluenceTrainingService.pageScan()).doesNotThrowAnyException();
-        verify(trainingDocumentService, times(1)).findByConfluencePageId(CONFLUENCE_PAGE_ID_1);
 
-        verify(vectorStoreService, never()).findByTrainingDocumentId(TRAINING_DOCUMENT_ID_1);
-        verify(vectorStoreService, never()).delete(anyList());
-        verify(trainingDocumentService, never()).update(any(), eq(DocumentStatus.REPLACED));
+        verify(trainingDocumentService, times(1)).save(any(TrainingDocument.class), any(InputStream.class));
+
+        ArgumentCaptor<ConfluenceScanState> scanState = ArgumentCaptor.forClass(ConfluenceScanState.class);
+        verify(confluenceScanStateRepository).save(scanState.capture());
+        assertThat(scanState.getValue().getHighWaterMark()).isEqualTo(ZonedDateTime.parse("2026-03-01T10:00:00Z"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void reconcile_removesIngestedPagesNoLongerListed() {
+        UUID removedTrainingDocumentId = UUID.randomUUID();
+        Page listed = page(CONFLUENCE_PAGE_ID_1, "2026-03-02T10:00:00Z");
+
+        ConfluencePagesResponse confluencePagesResponse = new ConfluencePagesResponse();
+        confluencePagesResponse.setResults(List.of(listed));
+
+        when(webClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(any(Function.class))).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.exchangeToMono(any())).thenReturn(Mono.just(confluencePagesResponse));
+
+        when(trainingDocumentService.latestConfluencePageVersions(List.of(CONFLUENCE_PAGE_ID_1)))
+                .thenReturn(Map.of(CONFLUENCE_PAGE_ID_1, latestVersion(1)));
+        when(trainingDocumentService.liveConfluencePageIds()).thenReturn(List.of(CONFLUENCE_PAGE_ID_1, "c_deleted"));
+        when(trainingDocumentService.latestConfluencePageVersions(List.of("c_deleted")))
+                .thenReturn(Map.of("c_deleted", pageVersion("c_deleted", removedTrainingDocumentId, 4)));
+
+        confluenceTrainingService.reconcile();
+
+        verify(trainingJobService).cancel(removedTrainingDocumentId);
+        verify(trainingDocumentService).status(removedTrainingDocumentId, DocumentStatus.REMOVED);
+        verify(trainingDocumentService, never()).status(TRAINING_DOCUMENT_ID_1, DocumentStatus.REMOVED);
+    }
+
+    @Test
+    public void remove_cancelsTrainingJobBeforeDeletingVectors() {
+        when(trainingDocumentService.latestConfluencePageVersions(List.of(CONFLUENCE_PAGE_ID_1)))
+                .thenReturn(Map.of(CONFLUENCE_PAGE_ID_1, latestVersion(1)));
+
+        confluenceTrainingService.remove(CONFLUENCE_PAGE_ID_1);
+
+        InOrder inOrder = inOrder(trainingJobService, vectorStoreService, trainingDocumentService, transactionManager);
+        inOrder.verify(trainingJobService).cancel(TRAINING_DOCUMENT_ID_1);
+        inOrder.verify(vectorStoreService).deleteByTrainingDocumentId(TRAINING_DOCUMENT_ID_1);
+        inOrder.verify(trainingDocumentService).status(TRAINING_DOCUMENT_ID_1, DocumentStatus.REMOVED);
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    private static Page page(String id, String modifiedAt) {
+        Storage storage = new Storage();
+        storage.setValue("Penelope");
+        Body body = new Body();
+        body.setStorage(storage);
+
+        Version version = new Version();
+        version.setNumber(1);
+        version.setCreatedAt(modifiedAt);
+
+        Page page = new Page();
+        page.setId(id);
+        page.setTitle(id);
+        page.setBody(body);
+        page.setVersion(version);
+
+        return page;
+    }
+
+    private static ConfluencePageVersion latestVersion(int version) {
+        return pageVersion(CONFLUENCE_PAGE_ID_1, TRAINING_DOCUMENT_ID_1, version);
+    }
+
+    private static ConfluencePageVersion pageVersion(String pageId, UUID trainingDocumentId, int version) {
+        return new ConfluencePageVersion() {
+            @Override
+            public String getConfluencePageId() {
+                return pageId;
+            }
+
+            @Override
+            public UUID getTrainingDocumentId() {
+                return trainingDocumentId;
+            }
+
+            @Override
+            public Integer getVersion() {
+                return version;
+            }
+        };
     }
 }
@@ -0,0 +1,96 @@
+package com.solesonic.service.atlassian;
+
+import com.solesonic.model.atlassian.confluence.ConfluenceWebhookEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ConfluenceWebhookServiceTest {
+
+    private static final String SECRET = "webhook-secret";
+    private static final byte[] BODY = "{\"page\":{\"id\":\"123\"}}".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private ConfluenceTrainingService confluenceTrainingService;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private ConfluenceWebhookService confluenceWebhookService;
+
+    @BeforeEach
+    void setUp() {
+        confluenceWebhookService = new ConfluenceWebhookService(confluenceTrainingService, stringRedisTemplate);
+        ReflectionTestUtils.setField(confluenceWebhookService, "webhookSecret", SECRET);
+        ReflectionTestUtils.setField(confluenceWebhookService, "replayWindowSeconds", 300L);
+    }
+
+    @Test
+    void isValidSignature_whenSignedWithSecret_returnsTrue() throws Exception {
+        assertThat(confluenceWebhookService.isValidSignature(BODY, sign(SECRET, BODY))).isTrue();
+    }
+
+    @Test
+    void isValidSignature_whenSignedWithOtherSecret_returnsFalse() throws Exception {
+        assertThat(confluenceWebhookService.isValidSignature(BODY, sign("other", BODY))).isFalse();
+        assertThat(confluenceWebhookService.isValidSignature(BODY, null)).isFalse();
+    }
+
+    @Test
+    void isValidSignature_whenNoSecretConfigured_returnsFalse() throws Exception {
+        ReflectionTestUtils.setField(confluenceWebhookService, "webhookSecret", "");
+
+        assertThat(confluenceWebhookService.isValidSignature(BODY, sign("", BODY))).isFalse();
+    }
+
+    @Test
+    void isWithinReplayWindow_acceptsOnlyRecentTimestamps() {
+        ConfluenceWebhookEvent confluenceWebhookEvent = new ConfluenceWebhookEvent();
+        assertThat(confluenceWebhookService.isWithinReplayWindow(confluenceWebhookEvent)).isFalse();
+
+        confluenceWebhookEvent.setTimestamp(System.currentTimeMillis());
+        assertThat(confluenceWebhookService.isWithinReplayWindow(confluenceWebhookEvent)).isTrue();
+
+        confluenceWebhookEvent.setTimestamp(System.currentTimeMillis() - Duration.ofHours(1).toMillis());
+        assertThat(confluenceWebhookService.isWithinReplayWindow(confluenceWebhookEvent)).isFalse();
+    }
+
+    @Test
+    void markDelivered_whenSignatureSeenBefore_returnsFalse() throws Exception {
+        String signature = sign(SECRET, BODY);
+
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq("confluence:webhook:delivered:" + signature), anyString(), any(Duration.class)))
+                .thenReturn(true, false);
+
+        assertThat(confluenceWebhookService.markDelivered(signature)).isTrue();
+        assertThat(confluenceWebhookService.markDelivered(signature)).isFalse();
+    }
+
+    private static String sign(String secret, byte[] body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.isEmpty() ? new byte[1] : secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return "sha256=" + HexFormat.of().formatHex(mac.doFinal(body));
+    }
+}
@@ -0,0 +1,49 @@
+package com.solesonic.service.etl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.solesonic.service.etl.ChunkCacheService.CONTENT_HASH;
+import static com.solesonic.service.etl.DocumentService.DOCUMENT_SOURCE;
+import static com.solesonic.service.etl.DocumentService.TRAINING_DOCUMENT_ID;
+import static com.solesonic.service.etl.EtlKeywordEnricher.EXCERPT_KEYWORDS;
+import static com.solesonic.service.etl.EtlMetadataEnricher.NEXT_SECTION_SUMMARY;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChunkCacheServiceTest {
+
+    @Test
+    void embeddingHash_ignoresMetadataOfTheOwningDocument() {
+        Document first = chunk("Rotate the signing key", "next steps", "USER");
+        Document second = chunk("Rotate the signing key", "next steps", "CONFLUENCE");
+
+        assertThat(ChunkCacheService.embeddingHash(first)).isEqualTo(ChunkCacheService.embeddingHash(second));
+        assertThat(first.getFormattedContent(MetadataMode.EMBED))
+                .contains("next steps")
+                .doesNotContain(first.getMetadata().get(TRAINING_DOCUMENT_ID).toString());
+    }
+
+    @Test
+    void embeddingHash_changesWhenNeighbourSummaryChanges() {
+        Document before = chunk("Rotate the signing key", "next steps", "USER");
+        Document after = chunk("Rotate the signing key", "rewritten next steps", "USER");
+
+        assertThat(ChunkCacheService.embeddingHash(before)).isNotEqualTo(ChunkCacheService.embeddingHash(after));
+    }
+
+    private static Document chunk(String text, String nextSummary, String documentSource) {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put(EXCERPT_KEYWORDS, "signing, key");
+        metadata.put(NEXT_SECTION_SUMMARY, nextSummary);
+        metadata.put(TRAINING_DOCUMENT_ID, UUID.randomUUID());
+        metadata.put(DOCUMENT_SOURCE, documentSource);
+        metadata.put(CONTENT_HASH, "hash");
+
+        return new Document(text, metadata);
+    }
+}
@@ -0,0 +1,186 @@
+package com.solesonic.service.etl;
+
+import com.solesonic.config.etl.EtlEnrichmentProperties;
+import com.solesonic.config.etl.EtlPipelineProperties;
+import com.solesonic.model.document.DocumentSource;
+import com.solesonic.model.training.EmbeddedDocument;
+import com.solesonic.model.training.TrainingDocument;
+import com.solesonic.service.rag.TrainingDocumentService;
+import com.solesonic.service.rag.VectorStoreService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static com.solesonic.service.etl.DocumentService.TRAINING_DOCUMENT_ID;
+import static com.solesonic.service.etl.EtlKeywordEnricher.EXCERPT_KEYWORDS;
+import static com.solesonic.service.etl.EtlMetadataEnricher.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EtlServiceTest {
+
+    @Mock
+    private TrainingDocumentService trainingDocumentService;
+
+    @Mock
+    private VectorStoreService vectorStoreService;
+
+    @Mock
+    private EtlKeywordEnricher etlKeywordEnricher;
+
+    @Mock
+    private EtlTextSplitter etlTextSplitter;
+
+    @Mock
+    private ChunkCacheService chunkCacheService;
+
+    @Mock
+    private EtlThrottle etlThrottle;
+
+    private EtlEnrichmentProperties etlEnrichmentProperties;
+
+    private EtlService etlService;
+
+    @BeforeEach
+    void setUp() {
+        EtlPipelineProperties etlPipelineProperties = new EtlPipelineProperties();
+        etlPipelineProperties.setEmbedBatchSize(2);
+        etlPipelineProperties.setWriteBatchSize(4);
+
+        etlEnrichmentProperties = new EtlEnrichmentProperties();
+
+        EtlMetadataEnricher etlMetadataEnricher = spy(new EtlMetadataEnricher(null));
+        lenient().doAnswer(invocation -> {
+            Document chunk = invocation.getArgument(0);
+            chunk.getMetadata().put(SECTION_SUMMARY, "summary of " + chunk.getText());
+            return chunk;
+        }).when(etlMetadataEnricher).enrich(any(Document.class));
+
+        etlService = new EtlService(trainingDocumentService,
+                vectorStoreService,
+                etlKeywordEnricher,
+                etlMetadataEnricher,
+                etlTextSplitter,
+                chunkCacheService,
+                etlThrottle,
+                etlPipelineProperties,
+                etlEnrichmentProperties,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        etlService.shutdown();
+    }
+
+    @Test
+    void process_streamsChunksInOrderWithNeighbourSummaries() {
+        TrainingDocument trainingDocument = new TrainingDocument(UUID.randomUUID(), "guide.txt", "text/plain");
+
+        when(etlTextSplitter.split(any())).thenAnswer(invocation -> {
+            List<Document> pages = invocation.getArgument(0);
+            String text = pages.getFirst().getText();
+            return List.of(new Document(text + "-a"), new Document(text + "-b"));
+        });
+        when(etlKeywordEnricher.enrich(any(Document.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(chunkCacheService.enrichment(any(Document.class))).thenReturn(Optional.empty());
+        when(chunkCacheService.embed(any())).thenAnswer(invocation -> {
+            List<Document> batch = invocation.getArgument(0);
+            return batch.stream()
+                    .map(chunk -> new EmbeddedDocument(chunk, new float[]{1f}))
+                    .toList();
+        });
+        when(vectorStoreService.insert(any())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        List<Document> pages = IntStream.range(0, 3)
+                .mapToObj(page -> new Document("page" + page))
+                .toList();
+
+        long written = etlService.process(trainingDocument, () -> pages, () -> {});
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EmbeddedDocument>> batches = ArgumentCaptor.forClass(List.class);
+        verify(chunkCacheService, times(3)).embed(any());
+        verify(vectorStoreService, times(2)).insert(batches.capture());
+
+        List<Document> chunks = new ArrayList<>();
+        batches.getAllValues().forEach(batch -> batch.forEach(embedded -> chunks.add(embedded.document())));
+        chunks.sort((left, right) -> left.getText().compareTo(right.getText()));
+
+        assertThat(written).isEqualTo(6);
+        assertThat(chunks).extracting(Document::getText)
+                .containsExactly("page0-a", "page0-b", "page1-a", "page1-b", "page2-a", "page2-b");
+        assertThat(chunks).allMatch(chunk -> trainingDocument.getId().equals(chunk.getMetadata().get(TRAINING_DOCUMENT_ID)));
+
+        assertThat(chunks.getFirst().getMetadata()).doesNotContainKey(PREV_SECTION_SUMMARY);
+        assertThat(chunks.get(2).getMetadata())
+                .containsEntry(PREV_SECTION_SUMMARY, "summary of page0-b")
+                .containsEntry(NEXT_SECTION_SUMMARY, "summary of page1-b");
+        assertThat(chunks.getLast().getMetadata()).doesNotContainKey(NEXT_SECTION_SUMMARY);
+    }
+
+    @Test
+    void process_whenChunkWasSeenBefore_reusesCachedEnrichment() {
+        TrainingDocument trainingDocument = new TrainingDocument(UUID.randomUUID(), "guide.txt", "text/plain");
+
+        when(etlTextSplitter.split(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(chunkCacheService.enrichment(any(Document.class))).thenReturn(Optional.of(Map.of(
+                EXCERPT_KEYWORDS, "cached keywords",
+                SECTION_SUMMARY, "cached summary"))));
+        when(chunkCacheService.embed(any())).thenAnswer(invocation -> {
+            List<Document> batch = invocation.getArgument(0);
+            return batch.stream()
+                    .map(chunk -> new EmbeddedDocument(chunk, new float[]{1f}))
+                    .toList();
+        });
+        when(vectorStoreService.insert(any())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        long written = etlService.process(trainingDocument, () -> List.of(new Document("unchanged")), () -> {});
+
+        assertThat(written).isEqualTo(1);
+        verifyNoInteractions(etlKeywordEnricher);
+    }
+
+    @Test
+    void process_whenSummariesDisabledForSource_enrichesKeywordsOnly() {
+        etlEnrichmentProperties.setSummaryDisabledSources(EnumSet.of(DocumentSource.CONFLUENCE));
+
+        TrainingDocument trainingDocument = new TrainingDocument(UUID.randomUUID(), "page.html", "text/html");
+        trainingDocument.setDocumentSource(DocumentSource.CONFLUENCE);
+
+        when(etlTextSplitter.split(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(etlKeywordEnricher.enrich(any(Document.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(chunkCacheService.enrichment(any(Document.class))).thenReturn(Optional.empty());
+        when(chunkCacheService.embed(any())).thenAnswer(invocation -> {
+            List<Document> batch = invocation.getArgument(0);
+            return batch.stream()
+                    .map(chunk -> new EmbeddedDocument(chunk, new float[]{1f}))
+                    .toList();
+        });
+        when(vectorStoreService.insert(any())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+
+        etlService.process(trainingDocument, () -> List.of(new Document("bulk import")), () -> {});
+
+        verify(etlKeywordEnricher).enrich(any(Document.class));
+        verify(vectorStoreService).insert(argThat(batch ->
+                !batch.getFirst().document().getMetadata().containsKey(SECTION_SUMMARY)));
+    }
+}
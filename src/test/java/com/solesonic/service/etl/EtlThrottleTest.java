@@ -0,0 +1,90 @@
+package com.solesonic.service.etl;
+
+import com.solesonic.config.etl.EtlThrottleProperties;
+import com.solesonic.service.chat.ChatLoadMonitor;
+import com.solesonic.service.redis.ActiveStreamTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class EtlThrottleTest {
+
+    @Mock
+    private ActiveStreamTracker activeStreamTracker;
+
+    private ChatLoadMonitor chatLoadMonitor;
+
+    private EtlThrottle etlThrottle;
+
+    @BeforeEach
+    void setUp() {
+        chatLoadMonitor = new ChatLoadMonitor();
+        etlThrottle = new EtlThrottle(activeStreamTracker, chatLoadMonitor, new EtlThrottleProperties());
+    }
+
+    @Test
+    void sample_whenChatIsQuiet_runsAllWorkers() {
+        when(activeStreamTracker.count()).thenReturn(Mono.just(0L));
+
+        etlThrottle.sample();
+
+        assertThat(etlThrottle.mode()).isEqualTo(EtlThrottle.Mode.NORMAL);
+        assertThat(etlThrottle.allowedWorkers(4)).isEqualTo(4);
+    }
+
+    @Test
+    void sample_underModerateLoad_slowsToOneWorker() {
+        when(activeStreamTracker.count()).thenReturn(Mono.just(3L));
+
+        etlThrottle.sample();
+
+        assertThat(etlThrottle.mode()).isEqualTo(EtlThrottle.Mode.SLOWED);
+        assertThat(etlThrottle.allowedWorkers(4)).isEqualTo(1);
+    }
+
+    @Test
+    void sample_whenRedisIsUnavailable_usesLocalGenerations() {
+        when(activeStreamTracker.count()).thenReturn(Mono.error(new IllegalStateException("redis down")));
+
+        for (int i = 0; i < 5; i++) {
+            chatLoadMonitor.start();
+        }
+
+        etlThrottle.sample();
+
+        assertThat(etlThrottle.mode()).isEqualTo(EtlThrottle.Mode.PAUSED);
+        assertThat(etlThrottle.allowedWorkers(4)).isZero();
+    }
+
+    @Test
+    void awaitCapacity_resumesWhenLoadDrops() throws Exception {
+        when(activeStreamTracker.count()).thenReturn(Mono.just(10L), Mono.just(0L));
+
+        etlThrottle.sample();
+
+        CompletableFuture<Void> modelCall = CompletableFuture.runAsync(() -> {
+            try {
+                etlThrottle.awaitCapacity();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThat(modelCall).isNotDone();
+
+        etlThrottle.sample();
+
+        modelCall.get(5, TimeUnit.SECONDS);
+        assertThat(etlThrottle.mode()).isEqualTo(EtlThrottle.Mode.NORMAL);
+    }
+}
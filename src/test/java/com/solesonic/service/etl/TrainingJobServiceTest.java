@@ -0,0 +1,177 @@
+package com.solesonic.service.etl;
+
+import com.solesonic.exception.training.TrainingLeaseLostException;
+import com.solesonic.model.training.DocumentStatus;
+import com.solesonic.model.training.TrainingJob;
+import com.solesonic.model.training.TrainingJobStatus;
+import com.solesonic.repository.ollama.TrainingJobRepository;
+import com.solesonic.service.rag.RetrievalCache;
+import com.solesonic.service.rag.TrainingDocumentService;
+import com.solesonic.service.rag.VectorStoreService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TrainingJobServiceTest {
+
+    private static final String LEASE_OWNER = "node-test";
+
+    @Mock
+    private TrainingJobRepository trainingJobRepository;
+
+    @Mock
+    private TrainingDocumentService trainingDocumentService;
+
+    @Mock
+    private DocumentService documentService;
+
+    @Mock
+    private VectorStoreService vectorStoreService;
+
+    @Mock
+    private RetrievalCache retrievalCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TrainingJobService trainingJobService;
+
+    @BeforeEach
+    void setUp() {
+        trainingJobService = new TrainingJobService(trainingJobRepository,
+                trainingDocumentService,
+                documentService,
+                vectorStoreService,
+                retrievalCache,
+                new TransactionTemplate(transactionManager),
+                120,
+                3,
+                30);
+    }
+
+    @Test
+    void claim_leasesJobAndCountsAttempt() {
+        TrainingJob trainingJob = TrainingJob.queued(UUID.randomUUID());
+        trainingJob.setId(UUID.randomUUID());
+
+        when(trainingJobRepository.findClaimable()).thenReturn(Optional.of(trainingJob.getId()));
+        when(trainingJobRepository.findById(trainingJob.getId())).thenReturn(Optional.of(trainingJob));
+        when(trainingJobRepository.save(any(TrainingJob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Optional<TrainingJob> claimed = trainingJobService.claim(LEASE_OWNER);
+
+        assertThat(claimed).isPresent();
+        assertThat(claimed.get().getStatus()).isEqualTo(TrainingJobStatus.RUNNING);
+        assertThat(claimed.get().getLeaseOwner()).isEqualTo(LEASE_OWNER);
+        assertThat(claimed.get().getLeaseExpiresAt()).isAfter(ZonedDateTime.now().plusSeconds(100));
+        assertThat(claimed.get().getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void process_whenEtlFails_requeuesWithBackoff() {
+        TrainingJob trainingJob = running(1);
+
+        doThrow(new IllegalStateException("ollama unavailable"))
+                .when(documentService).resourceToVectorStore(eq(trainingJob.getTrainingDocumentId()), any(Runnable.class));
+
+        trainingJobService.process(trainingJob);
+
+        assertThat(trainingJob.getStatus()).isEqualTo(TrainingJobStatus.QUEUED);
+        assertThat(trainingJob.getLeaseOwner()).isNull();
+        assertThat(trainingJob.getAvailableAt()).isAfter(ZonedDateTime.now().plusSeconds(20));
+        assertThat(trainingJob.getLastError()).isEqualTo("ollama unavailable");
+        verify(trainingDocumentService).status(trainingJob.getTrainingDocumentId(), DocumentStatus.QUEUED);
+        verify(trainingDocumentService, never()).status(trainingJob.getTrainingDocumentId(), DocumentStatus.FAILED);
+        verify(vectorStoreService, times(1)).deleteByTrainingDocumentId(trainingJob.getTrainingDocumentId());
+    }
+
+    @Test
+    void process_whenAttemptsExhausted_failsDocument() {
+        TrainingJob trainingJob = running(3);
+
+        doThrow(new IllegalStateException("bad pdf"))
+                .when(documentService).resourceToVectorStore(eq(trainingJob.getTrainingDocumentId()), any(Runnable.class));
+
+        trainingJobService.process(trainingJob);
+
+        assertThat(trainingJob.getStatus()).isEqualTo(TrainingJobStatus.FAILED);
+        verify(trainingDocumentService).status(trainingJob.getTrainingDocumentId(), DocumentStatus.FAILED);
+        verify(transactionManager).commit(any());
+        //once before the attempt, once for the partial vectors it left behind
+        verify(vectorStoreService, times(2)).deleteByTrainingDocumentId(trainingJob.getTrainingDocumentId());
+    }
+
+    @Test
+    void complete_whenLeaseWasTakenOver_ignoresOutcome() {
+        TrainingJob trainingJob = running(1);
+        trainingJob.setLeaseOwner("node-other");
+
+        trainingJobService.complete(trainingJob.getId(), LEASE_OWNER);
+
+        assertThat(trainingJob.getStatus()).isEqualTo(TrainingJobStatus.RUNNING);
+        verify(trainingJobRepository, never()).save(any());
+        verifyNoInteractions(retrievalCache, trainingDocumentService);
+    }
+
+    @Test
+    void complete_completesDocumentAndInvalidatesCachedResultsOnce() {
+        TrainingJob trainingJob = running(1);
+
+        trainingJobService.complete(trainingJob.getId(), LEASE_OWNER);
+
+        assertThat(trainingJob.getStatus()).isEqualTo(TrainingJobStatus.COMPLETED);
+        verify(trainingDocumentService).status(trainingJob.getTrainingDocumentId(), DocumentStatus.COMPLETED);
+        verify(retrievalCache).invalidate();
+    }
+
+    @Test
+    void holdLease_whenLeaseTakenOver_throws() {
+        TrainingJob trainingJob = running(1);
+
+        when(trainingJobRepository.lockLease(trainingJob.getId(), LEASE_OWNER)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> trainingJobService.holdLease(trainingJob))
+                .isInstanceOf(TrainingLeaseLostException.class);
+    }
+
+    @Test
+    void process_whenLeaseLost_leavesJobToNewOwner() {
+        TrainingJob trainingJob = running(1);
+
+        doThrow(new TrainingLeaseLostException(trainingJob.getId(), LEASE_OWNER))
+                .when(documentService).resourceToVectorStore(eq(trainingJob.getTrainingDocumentId()), any(Runnable.class));
+
+        trainingJobService.process(trainingJob);
+
+        verify(trainingJobRepository, never()).save(any());
+        verify(trainingDocumentService, never()).status(trainingJob.getTrainingDocumentId(), DocumentStatus.QUEUED);
+    }
+
+    private TrainingJob running(int attempts) {
+        TrainingJob trainingJob = TrainingJob.queued(UUID.randomUUID());
+        trainingJob.setId(UUID.randomUUID());
+        trainingJob.setStatus(TrainingJobStatus.RUNNING);
+        trainingJob.setLeaseOwner(LEASE_OWNER);
+        trainingJob.setLeaseExpiresAt(ZonedDateTime.now().plusSeconds(120));
+        trainingJob.setAttempts(attempts);
+
+        lenient().when(trainingJobRepository.findById(trainingJob.getId())).thenReturn(Optional.of(trainingJob));
+
+        return trainingJob;
+    }
+}
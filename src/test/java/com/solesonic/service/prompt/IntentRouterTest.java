@@ -0,0 +1,137 @@
+package com.solesonic.service.prompt;
+
+import com.solesonic.config.olllama.IntentRouterProperties;
+import com.solesonic.model.prompt.SlashCommand;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.core.io.ClassPathResource;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.solesonic.service.rag.VectorStoreService.RETRIEVAL_TIMER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+public class IntentRouterTest {
+
+    @Mock
+    private SlashCommandService slashCommandService;
+
+    @Mock
+    private OllamaApi ollamaApi;
+
+    private MeterRegistry meterRegistry;
+
+    private IntentRouter intentRouter;
+
+    private SlashCommand basicPrompt;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+
+        intentRouter = new IntentRouter(slashCommandService,
+                ollamaApi,
+                new IntentRouterProperties(),
+                meterRegistry,
+                new ClassPathResource("prompts/intent_prompt.st"));
+
+        basicPrompt = slashCommand("basic-prompt", SlashCommand.PROMPT);
+    }
+
+    @Test
+    void route_whenSmallTalk_skipsRetrieval() {
+        IntentRouter.Route route = intentRouter.route("Thanks!", basicPrompt, true);
+
+        assertThat(route.retrieve()).isFalse();
+        assertThat(route.slashCommand()).isEqualTo(basicPrompt);
+        assertThat(route.source()).isEqualTo(IntentRouter.Source.HEURISTIC);
+        assertThat(meterRegistry.get(IntentRouter.ROUTES).tag("retrieval", "skip").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void route_whenAnswerCarriesMoreThanItself_keepsRetrieval() {
+        for (String message : List.of("yes please", "ok, PROJ", "sure staging")) {
+            IntentRouter.Route route = intentRouter.route(message, basicPrompt, true);
+
+            assertThat(route.retrieve()).as(message).isTrue();
+            assertThat(route.source()).as(message).isNotEqualTo(IntentRouter.Source.HEURISTIC);
+        }
+    }
+
+    @Test
+    void route_whenToolCommand_skipsRetrieval() {
+        SlashCommand tool = slashCommand("create-jira-issue", SlashCommand.TOOL);
+
+        IntentRouter.Route route = intentRouter.route("Create a ticket for the login bug", tool, false);
+
+        assertThat(route.retrieve()).isFalse();
+        assertThat(route.source()).isEqualTo(IntentRouter.Source.COMMAND);
+    }
+
+    @Test
+    void route_whenIdentifierMentioned_retrieves() {
+        IntentRouter.Route route = intentRouter.route("Status of SOL-142 please", basicPrompt, true);
+
+        assertThat(route.retrieve()).isTrue();
+        assertThat(route.source()).isEqualTo(IntentRouter.Source.HEURISTIC);
+    }
+
+    @Test
+    void route_whenUndecidedWithoutModel_retrievesWithRequestedPrompt() {
+        IntentRouter.Route route = intentRouter.route("Our deploy pipeline failed last night", basicPrompt, true);
+
+        assertThat(route.retrieve()).isTrue();
+        assertThat(route.slashCommand()).isEqualTo(basicPrompt);
+        assertThat(route.source()).isEqualTo(IntentRouter.Source.FALLBACK);
+        verifyNoInteractions(slashCommandService, ollamaApi);
+    }
+
+    @Test
+    void route_whenSkipped_reportsMeanRetrievalTimeAsSaved() {
+        Timer retrievalTimer = Timer.builder(RETRIEVAL_TIMER).register(meterRegistry);
+        retrievalTimer.record(Duration.ofMillis(100));
+        retrievalTimer.record(Duration.ofMillis(300));
+
+        intentRouter.route("ok", basicPrompt, true);
+        intentRouter.route("got it, thanks", basicPrompt, true);
+
+        assertThat(meterRegistry.get(IntentRouter.RETRIEVAL_SAVED).counter().count()).isEqualTo(400);
+    }
+
+    @Test
+    void parse_readsPromptAndDecisionAfterReasoning() {
+        SlashCommand summaryPrompt = slashCommand("summary-prompt", SlashCommand.PROMPT);
+
+        IntentRouter.Route route = IntentRouter.parse("<think>\nno facts needed\n</think>\n`summary-prompt` SKIP",
+                basicPrompt, List.of(basicPrompt, summaryPrompt));
+
+        assertThat(route.retrieve()).isFalse();
+        assertThat(route.slashCommand()).isEqualTo(summaryPrompt);
+        assertThat(route.source()).isEqualTo(IntentRouter.Source.MODEL);
+    }
+
+    @Test
+    void parse_whenPromptUnknown_keepsRequestedPromptAndRetrieval() {
+        IntentRouter.Route route = IntentRouter.parse("made-up-prompt", basicPrompt, List.of(basicPrompt));
+
+        assertThat(route.retrieve()).isTrue();
+        assertThat(route.slashCommand()).isEqualTo(basicPrompt);
+    }
+
+    private SlashCommand slashCommand(String name, String commandType) {
+        SlashCommand slashCommand = new SlashCommand();
+        slashCommand.name = name;
+        slashCommand.commandType = commandType;
+        return slashCommand;
+    }
+}
@@ -0,0 +1,40 @@
+package com.solesonic.service.rag;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReciprocalRankFusionTest {
+
+    private static final int RRF_K = 60;
+
+    @Test
+    void fuse_whenDocumentIsInBothLists_ranksItFirst() {
+        List<Document> vector = List.of(document("a"), document("b"), document("c"));
+        List<Document> lexical = List.of(document("d"), document("c"));
+
+        List<Document> fused = ReciprocalRankFusion.fuse(List.of(vector, lexical), RRF_K, 3);
+
+        assertThat(fused).extracting(Document::getId).containsExactly("c", "a", "d");
+        assertThat(fused.getFirst().getScore()).isEqualTo(1.0 / (RRF_K + 3) + 1.0 / (RRF_K + 2));
+    }
+
+    @Test
+    void fuse_whenOneListIsEmpty_keepsTheOtherRanking() {
+        List<Document> vector = List.of(document("a"), document("b"));
+
+        List<Document> fused = ReciprocalRankFusion.fuse(List.of(vector, List.of()), RRF_K, 5);
+
+        assertThat(fused).extracting(Document::getId).containsExactly("a", "b");
+    }
+
+    private static Document document(String id) {
+        return Document.builder()
+                .id(id)
+                .text("chunk " + id)
+                .build();
+    }
+}
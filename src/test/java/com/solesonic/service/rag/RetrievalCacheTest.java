@@ -0,0 +1,75 @@
+package com.solesonic.service.rag;
+
+import com.solesonic.model.VectorSearch;
+import com.solesonic.redis.publisher.RetrievalCacheInvalidationPublisher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class RetrievalCacheTest {
+
+    @Mock
+    private RetrievalCacheInvalidationPublisher retrievalCacheInvalidationPublisher;
+
+    private RetrievalCache retrievalCache;
+
+    @BeforeEach
+    void setUp() {
+        retrievalCache = new RetrievalCache(retrievalCacheInvalidationPublisher, 100, 100, 60);
+    }
+
+    @Test
+    void embedding_whenQuestionDiffersOnlyInForm_embedsOnce() {
+        AtomicInteger embedded = new AtomicInteger();
+
+        float[] first = retrievalCache.embedding("What's our deploy process?", _ -> embed(embedded));
+        float[] second = retrievalCache.embedding("  what's our   DEPLOY process ", _ -> embed(embedded));
+
+        assertThat(second).isSameAs(first);
+        assertThat(embedded).hasValue(1);
+    }
+
+    @Test
+    void results_whenEmbeddingsShareSigns_reuseResults() {
+        AtomicInteger searched = new AtomicInteger();
+        VectorSearch vectorSearch = new VectorSearch("deploy", 0.5, 4);
+
+        retrievalCache.results(RetrievalCache.ResultKey.of(new float[]{0.2f, -0.4f, 0.1f}, null, vectorSearch), () -> search(searched));
+        retrievalCache.results(RetrievalCache.ResultKey.of(new float[]{0.21f, -0.39f, 0.12f}, null, vectorSearch), () -> search(searched));
+
+        assertThat(searched).hasValue(1);
+    }
+
+    @Test
+    void invalidate_dropsResultsAndTellsOtherNodes() {
+        AtomicInteger searched = new AtomicInteger();
+        RetrievalCache.ResultKey resultKey = RetrievalCache.ResultKey.of(new float[]{0.2f}, null, new VectorSearch("deploy", 0.5, 4));
+
+        retrievalCache.results(resultKey, () -> search(searched));
+        retrievalCache.invalidate();
+        retrievalCache.results(resultKey, () -> search(searched));
+
+        assertThat(searched).hasValue(2);
+        verify(retrievalCacheInvalidationPublisher).publish();
+    }
+
+    private static float[] embed(AtomicInteger embedded) {
+        embedded.incrementAndGet();
+        return new float[]{0.1f, 0.2f};
+    }
+
+    private static List<Document> search(AtomicInteger searched) {
+        searched.incrementAndGet();
+        return List.of(new Document("deploy with the release pipeline"));
+    }
+}
@@ -0,0 +1,142 @@
+package com.solesonic.service.rag;
+
+import com.solesonic.model.training.DocumentStatus;
+import com.solesonic.model.training.TrainingDocument;
+import com.solesonic.model.training.TrainingJob;
+import com.solesonic.repository.ollama.StatusHistoryRepository;
+import com.solesonic.repository.ollama.TrainingDocumentRepository;
+import com.solesonic.repository.ollama.TrainingJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.solesonic.model.document.DocumentSource.USER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class TrainingDocumentServiceTest {
+
+    @Mock
+    private TrainingDocumentRepository trainingDocumentRepository;
+
+    @Mock
+    private StatusHistoryRepository statusHistoryRepository;
+
+    @Mock
+    private TrainingJobRepository trainingJobRepository;
+
+    @Mock
+    private TrainingDocumentContentStore trainingDocumentContentStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TrainingDocumentService trainingDocumentService;
+
+    @BeforeEach
+    void setUp() {
+        trainingDocumentService = new TrainingDocumentService(trainingDocumentRepository,
+                statusHistoryRepository,
+                trainingJobRepository,
+                trainingDocumentContentStore,
+                new TransactionTemplate(transactionManager));
+
+        lenient().when(trainingDocumentRepository.save(any(TrainingDocument.class))).thenAnswer(invocation -> {
+            TrainingDocument trainingDocument = invocation.getArgument(0);
+            trainingDocument.setId(UUID.randomUUID());
+            return trainingDocument;
+        });
+    }
+
+    @Test
+    void queue_whenContentIsNew_storesAndQueuesIt() {
+        when(trainingDocumentRepository.findFirstByContentHashAndDocumentSource(anyString(), eq(USER))).thenReturn(Optional.empty());
+        when(trainingDocumentContentStore.write(any(InputStream.class))).thenReturn(42L);
+
+        TrainingDocument queued = trainingDocumentService.queue(upload("notes.txt"));
+
+        assertThat(queued.getDocumentStatus()).isEqualTo(DocumentStatus.QUEUED);
+        assertThat(queued.getFileOid()).isEqualTo(42L);
+        assertThat(queued.getContentHash()).hasSize(64);
+        verify(trainingJobRepository).save(any(TrainingJob.class));
+    }
+
+    @Test
+    void queue_whenRenamedCopyIsUploaded_referencesTheOriginal() {
+        TrainingDocument original = new TrainingDocument(UUID.randomUUID(), "notes.txt", "text/plain");
+        original.setFileOid(42L);
+
+        when(trainingDocumentRepository.findFirstByContentHashAndDocumentSource(anyString(), eq(USER))).thenReturn(Optional.of(original));
+
+        TrainingDocument queued = trainingDocumentService.queue(upload("notes (copy).txt"));
+
+        assertThat(queued.getDocumentStatus()).isEqualTo(DocumentStatus.DUPLICATE);
+        assertThat(queued.getFileOid()).isEqualTo(42L);
+        assertThat(queued.getMetadata()).containsEntry(TrainingDocument.DUPLICATE_OF, original.getId().toString());
+        verifyNoInteractions(trainingDocumentContentStore, trainingJobRepository);
+    }
+
+    @Test
+    void queue_whenSameFileIsUploadedAgain_returnsTheOriginal() {
+        TrainingDocument original = new TrainingDocument(UUID.randomUUID(), "notes.txt", "text/plain");
+
+        when(trainingDocumentRepository.findFirstByContentHashAndDocumentSource(anyString(), eq(USER))).thenReturn(Optional.of(original));
+
+        TrainingDocument queued = trainingDocumentService.queue(upload("notes.txt"));
+
+        assertThat(queued).isSameAs(original);
+        verify(trainingDocumentRepository, never()).save(any());
+    }
+
+    @Test
+    void queue_whenFailedOriginalIsUploadedAgain_requeuesIt() {
+        TrainingDocument original = new TrainingDocument(UUID.randomUUID(), "notes.txt", "text/plain", DocumentStatus.FAILED);
+
+        when(trainingDocumentRepository.findFirstByContentHashAndDocumentSource(anyString(), eq(USER))).thenReturn(Optional.of(original));
+
+        TrainingDocument queued = trainingDocumentService.queue(upload("notes.txt"));
+
+        assertThat(queued).isSameAs(original);
+        assertThat(queued.getDocumentStatus()).isEqualTo(DocumentStatus.QUEUED);
+        verify(trainingDocumentRepository).setCurrentStatus(eq(original.getId()), eq(DocumentStatus.QUEUED), any(ZonedDateTime.class));
+        verify(trainingJobRepository).save(any(TrainingJob.class));
+        verifyNoInteractions(trainingDocumentContentStore);
+    }
+
+    @Test
+    void queue_whenConcurrentUploadStoresTheContentFirst_returnsTheWinner() {
+        TrainingDocument winner = new TrainingDocument(UUID.randomUUID(), "notes.txt", "text/plain", DocumentStatus.QUEUED);
+
+        when(trainingDocumentRepository.findFirstByContentHashAndDocumentSource(anyString(), eq(USER)))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+        when(trainingDocumentContentStore.write(any(InputStream.class))).thenReturn(42L);
+        doThrow(new DataIntegrityViolationException("idx_training_document_user_content_hash"))
+                .doNothing()
+                .when(transactionManager).commit(any());
+
+        TrainingDocument queued = trainingDocumentService.queue(upload("notes.txt"));
+
+        assertThat(queued).isSameAs(winner);
+        verify(trainingJobRepository, times(1)).save(any(TrainingJob.class));
+    }
+
+    private static MockMultipartFile upload(String fileName) {
+        return new MockMultipartFile("file", fileName, "text/plain", "release notes".getBytes());
+    }
+}
@@ -0,0 +1,268 @@
+package com.solesonic.service.rag;
+
+import com.solesonic.config.rag.HybridSearchProperties;
+import com.solesonic.config.rag.VectorStorageProperties;
+import com.solesonic.model.VectorSearch;
+import com.solesonic.model.training.EmbeddedDocument;
+import com.solesonic.repository.ollama.VectorStoreRepository;
+import com.solesonic.service.user.UserPreferencesService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Recall and latency of full precision search against half precision search with re-ranking, over a synthetic
+ * clustered corpus in a throwaway pgvector container. Needs Docker and is skipped unless run with
+ * {@code -Dvector.benchmark=true}; {@code -Dvector.benchmark.corpus} and {@code -Dvector.benchmark.queries} size it.
+ */
+@EnabledIfSystemProperty(named = "vector.benchmark", matches = "true")
+public class VectorRecallBenchmarkTest {
+
+    private static final int DIMENSIONS = 1024;
+    private static final int CLUSTERS = 200;
+    private static final int TOP_K = 10;
+    private static final int WARM_UP_QUERIES = 20;
+    private static final int CORPUS_SIZE = Integer.getInteger("vector.benchmark.corpus", 20_000);
+    private static final int QUERY_COUNT = Integer.getInteger("vector.benchmark.queries", 200);
+
+    private static final GenericContainer<?> POSTGRES = new GenericContainer<>("pgvector/pgvector:0.8.0-pg17")
+            .withEnv("POSTGRES_USER", "benchmark")
+            .withEnv("POSTGRES_PASSWORD", "benchmark")
+            .withEnv("POSTGRES_DB", "benchmark")
+            .withExposedPorts(5432)
+            .waitingFor(Wait.forLogMessage(".*database system is ready to accept connections.*", 2));
+
+    private static final Random random = new Random(42);
+
+    private static float[][] corpus;
+    private static float[][] queries;
+    private static List<Set<Integer>> exactNeighbours;
+
+    private static EmbeddingModel embeddingModel;
+    private static VectorStorageProperties vectorStorageProperties;
+    private static VectorStoreService vectorStoreService;
+
+    @BeforeAll
+    static void setUp() {
+        POSTGRES.start();
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:postgresql://%s:%d/benchmark".formatted(POSTGRES.getHost(), POSTGRES.getMappedPort(5432)),
+                "benchmark",
+                "benchmark");
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        createSchema(jdbcTemplate);
+
+        embeddingModel = mock(EmbeddingModel.class);
+        vectorStorageProperties = new VectorStorageProperties();
+
+        vectorStoreService = new VectorStoreService(mock(VectorStoreRepository.class),
+                mock(UserPreferencesService.class),
+                embeddingModel,
+                jdbcTemplate,
+                JdbcClient.create(dataSource),
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                JsonMapper.builder().build(),
+                vectorStorageProperties,
+                new HybridSearchProperties(),
+                uncached(),
+                new SimpleMeterRegistry());
+
+        corpus = clusteredCorpus();
+        queries = IntStream.range(0, QUERY_COUNT)
+                .mapToObj(_ -> perturb(corpus[random.nextInt(CORPUS_SIZE)], 0.05f))
+                .toArray(float[][]::new);
+
+        List<EmbeddedDocument> batch = new ArrayList<>();
+
+        for (int index = 0; index < CORPUS_SIZE; index++) {
+            Document document = Document.builder()
+                    .id(UUID.randomUUID().toString())
+                    .text(String.valueOf(index))
+                    .metadata(Map.of("TRAINING_DOCUMENT_ID", UUID.randomUUID().toString()))
+                    .build();
+
+            batch.add(new EmbeddedDocument(document, corpus[index]));
+
+            if (batch.size() == 500 || index == CORPUS_SIZE - 1) {
+                vectorStoreService.insert(batch);
+                batch.clear();
+            }
+        }
+
+        //built after loading, as a bulk build is far faster than inserting into a live index
+        jdbcTemplate.execute("SET maintenance_work_mem = '512MB'");
+        jdbcTemplate.execute("CREATE INDEX ON vector_store USING hnsw (embedding vector_cosine_ops)");
+        jdbcTemplate.execute("CREATE INDEX ON vector_store USING hnsw (embedding_half halfvec_cosine_ops)");
+        jdbcTemplate.execute("ANALYZE vector_store");
+
+        exactNeighbours = Arrays.stream(queries)
+                .map(VectorRecallBenchmarkTest::exactNeighbours)
+                .toList();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        POSTGRES.stop();
+    }
+
+    @Test
+    void halfPrecisionWithReRank_keepsRecallOfFullPrecision() {
+        Result full = run(VectorStorageProperties.Mode.FULL, 1);
+        Result half = run(VectorStorageProperties.Mode.HALF, 1);
+        Result reRanked = run(VectorStorageProperties.Mode.HALF, 4);
+
+        System.out.printf("""
+                Vector search benchmark, %d vectors of %d dimensions, %d queries, recall@%d
+                %-24s recall %.3f  p50 %6.2f ms  p95 %6.2f ms
+                %-24s recall %.3f  p50 %6.2f ms  p95 %6.2f ms
+                %-24s recall %.3f  p50 %6.2f ms  p95 %6.2f ms
+                """,
+                CORPUS_SIZE, DIMENSIONS, QUERY_COUNT, TOP_K,
+                "full", full.recall(), full.p50(), full.p95(),
+                "half", half.recall(), half.p50(), half.p95(),
+                "half, re-rank x4", reRanked.recall(), reRanked.p50(), reRanked.p95());
+
+        assertThat(reRanked.recall()).isGreaterThanOrEqualTo(full.recall() - 0.02);
+    }
+
+    private static Result run(VectorStorageProperties.Mode mode, int rerankFactor) {
+        vectorStorageProperties.setMode(mode);
+        vectorStorageProperties.setRerankFactor(rerankFactor);
+
+        for (int index = 0; index < WARM_UP_QUERIES; index++) {
+            search(queries[index % QUERY_COUNT]);
+        }
+
+        double[] latencies = new double[QUERY_COUNT];
+        double recall = 0;
+
+        for (int index = 0; index < QUERY_COUNT; index++) {
+            long started = System.nanoTime();
+            List<Document> documents = search(queries[index]);
+            latencies[index] = (System.nanoTime() - started) / 1_000_000.0;
+
+            long found = documents.stream()
+                    .map(document -> Integer.parseInt(Objects.requireNonNull(document.getText())))
+                    .filter(exactNeighbours.get(index)::contains)
+                    .count();
+
+            recall += (double) found / TOP_K;
+        }
+
+        Arrays.sort(latencies);
+
+        return new Result(recall / QUERY_COUNT,
+                latencies[QUERY_COUNT / 2],
+                latencies[(int) Math.ceil(QUERY_COUNT * 0.95) - 1]);
+    }
+
+    private static List<Document> search(float[] query) {
+        when(embeddingModel.embed(anyString())).thenReturn(query);
+        return vectorStoreService.findSimilarDocuments(new VectorSearch("benchmark", -1, TOP_K));
+    }
+
+    /**
+     * Every search has to reach the database to be measured.
+     */
+    private static RetrievalCache uncached() {
+        RetrievalCache retrievalCache = mock(RetrievalCache.class);
+
+        when(retrievalCache.embedding(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Function<String, float[]>>getArgument(1).apply(invocation.getArgument(0)));
+        when(retrievalCache.results(any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<List<Document>>>getArgument(1).get());
+
+        return retrievalCache;
+    }
+
+    private static Set<Integer> exactNeighbours(float[] query) {
+        double[] distances = Arrays.stream(corpus)
+                .mapToDouble(vector -> cosineDistance(query, vector))
+                .toArray();
+
+        return IntStream.range(0, CORPUS_SIZE)
+                .boxed()
+                .sorted(Comparator.comparingDouble(index -> distances[index]))
+                .limit(TOP_K)
+                .collect(Collectors.toSet());
+    }
+
+    private static float[][] clusteredCorpus() {
+        float[][] centroids = IntStream.range(0, CLUSTERS)
+                .mapToObj(_ -> perturb(new float[DIMENSIONS], 1f))
+                .toArray(float[][]::new);
+
+        return IntStream.range(0, CORPUS_SIZE)
+                .mapToObj(_ -> perturb(centroids[random.nextInt(CLUSTERS)], 0.3f))
+                .toArray(float[][]::new);
+    }
+
+    private static float[] perturb(float[] vector, float spread) {
+        float[] perturbed = new float[DIMENSIONS];
+
+        for (int index = 0; index < DIMENSIONS; index++) {
+            perturbed[index] = vector[index] + (float) random.nextGaussian() * spread;
+        }
+
+        return perturbed;
+    }
+
+    private static double cosineDistance(float[] left, float[] right) {
+        double dot = 0;
+        double leftNorm = 0;
+        double rightNorm = 0;
+
+        for (int index = 0; index < DIMENSIONS; index++) {
+            dot += left[index] * right[index];
+            leftNorm += left[index] * left[index];
+            rightNorm += right[index] * right[index];
+        }
+
+        return 1 - dot / Math.sqrt(leftNorm * rightNorm);
+    }
+
+    private static void createSchema(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS vector");
+        jdbcTemplate.execute("""
+                CREATE TABLE vector_store
+                (
+                    id                   uuid primary key,
+                    content              text,
+                    metadata             jsonb,
+                    embedding            vector(1024),
+                    embedding_half       halfvec(1024),
+                    training_document_id uuid generated always as ((metadata ->> 'TRAINING_DOCUMENT_ID')::uuid) stored,
+                    document_source      varchar(32) generated always as (metadata ->> 'DOCUMENT_SOURCE') stored
+                )
+                """);
+    }
+
+    private record Result(double recall, double p50, double p95) {
+    }
+}